@@ -0,0 +1,41 @@
+package org.openstructures.flow.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openstructures.flow.CompactFlowNetwork;
+import org.openstructures.flow.FlowNetwork;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building networks from a list of arcs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstructionBenchmark {
+    @Param({"genrmf-long", "genrmf-wide", "washington-rlg", "washington-wide", "washington-long", "ak", "bipartite"})
+    public String family;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private Instance instance;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        instance = Generators.generate(family, size);
+    }
+
+    @Benchmark
+    public FlowNetwork flowNetwork() {
+        return instance.toFlowNetwork();
+    }
+
+    @Benchmark
+    public CompactFlowNetwork compactFlowNetwork() {
+        return instance.toCompactFlowNetwork();
+    }
+}
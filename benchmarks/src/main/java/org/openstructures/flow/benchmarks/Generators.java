@@ -0,0 +1,179 @@
+package org.openstructures.flow.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generators of the instance families used in the DIMACS implementation challenge and the max flow literature.
+ * They follow the structure of the original generators, but use {@link Random} so the instances are not byte for byte
+ * the same as the ones produced by the original C programs.
+ */
+public final class Generators {
+    private static final int MAX_CAPACITY = 10_000;
+
+    private Generators() {
+    }
+
+    /**
+     * GENRMF by Goldfarb and Grigoriadis: b frames, each one an a x a grid with arcs of capacity c2 * a * a between grid neighbors.
+     * Every node of a frame is connected to a node of the next frame given by a random permutation, with a random capacity
+     * between c1 and c2. The source is the first node of the first frame and the sink is the last node of the last frame.
+     */
+    public static Instance genrmf(long seed, int a, int b, int c1, int c2) {
+        Random random = new Random(seed);
+        int frameSize = a * a;
+        Instance instance = new Instance(frameSize * b, 0, frameSize * b - 1);
+        for (int frame = 0; frame < b; frame++) {
+            int first = frame * frameSize;
+            for (int y = 0; y < a; y++) {
+                for (int x = 0; x < a; x++) {
+                    int node = first + y * a + x;
+                    if (x > 0) {
+                        instance.addArc(c2 * frameSize, node, node - 1);
+                    }
+                    if (x < a - 1) {
+                        instance.addArc(c2 * frameSize, node, node + 1);
+                    }
+                    if (y > 0) {
+                        instance.addArc(c2 * frameSize, node, node - a);
+                    }
+                    if (y < a - 1) {
+                        instance.addArc(c2 * frameSize, node, node + a);
+                    }
+                }
+            }
+            if (frame < b - 1) {
+                int[] permutation = permutation(random, frameSize);
+                for (int i = 0; i < frameSize; i++) {
+                    instance.addArc(c1 + random.nextInt(c2 - c1 + 1), first + i, first + frameSize + permutation[i]);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Washington random level graph: a grid of rows x columns nodes where every node has arcs to 3 random nodes of the next column.
+     * The source has arcs to the whole first column and the whole last column has arcs to the sink.
+     * Use many rows and few columns for the "wide" family and few rows and many columns for the "long" one.
+     */
+    public static Instance washingtonRlg(long seed, int rows, int columns) {
+        Random random = new Random(seed);
+        int source = rows * columns;
+        int sink = source + 1;
+        Instance instance = new Instance(rows * columns + 2, source, sink);
+        for (int row = 0; row < rows; row++) {
+            instance.addArc(1 + random.nextInt(MAX_CAPACITY), source, row);
+            instance.addArc(1 + random.nextInt(MAX_CAPACITY), (columns - 1) * rows + row, sink);
+        }
+        for (int column = 0; column < columns - 1; column++) {
+            for (int row = 0; row < rows; row++) {
+                for (int i = 0; i < 3; i++) {
+                    instance.addArc(1 + random.nextInt(MAX_CAPACITY), column * rows + row, (column + 1) * rows + random.nextInt(rows));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public static Instance washingtonWide(long seed, int size) {
+        return washingtonRlg(seed, size, 4);
+    }
+
+    public static Instance washingtonLong(long seed, int size) {
+        return washingtonRlg(seed, 4, size);
+    }
+
+    /**
+     * AK style instance, hard for push relabel. It's made of two parts that have to be saturated one after another:
+     * a path where every node also has an arc to the sink with capacities going down by one, so flow is sent along
+     * the path a bit at a time, and a long chain that the excess has to climb over with one relabel after another.
+     */
+    public static Instance ak(int k) {
+        int source = 0;
+        int sink = 1;
+        int pathStart = 2;
+        int chainStart = pathStart + k;
+        Instance instance = new Instance(chainStart + 2 * k, source, sink);
+        int pathCapacity = Math.multiplyExact(k, k + 1) / 2;
+        instance.addArc(pathCapacity, source, pathStart);
+        for (int i = 0; i < k; i++) {
+            int node = pathStart + i;
+            if (i < k - 1) {
+                instance.addArc(pathCapacity, node, node + 1);
+            }
+            instance.addArc(k - i, node, sink);
+        }
+        int chainCapacity = Math.multiplyExact(k, k);
+        instance.addArc(chainCapacity, source, chainStart);
+        for (int i = 0; i < 2 * k - 1; i++) {
+            instance.addArc(chainCapacity, chainStart + i, chainStart + i + 1);
+            instance.addArc(1, chainStart + i, sink);
+        }
+        instance.addArc(k, chainStart + 2 * k - 1, sink);
+        return instance;
+    }
+
+    /**
+     * Random bipartite network: the source has arcs to all left nodes, all right nodes have arcs to the sink
+     * and every left node has arcs to degree random right nodes.
+     */
+    public static Instance randomBipartite(long seed, int size, int degree) {
+        Random random = new Random(seed);
+        int source = 2 * size;
+        int sink = source + 1;
+        Instance instance = new Instance(2 * size + 2, source, sink);
+        for (int i = 0; i < size; i++) {
+            instance.addArc(1 + random.nextInt(MAX_CAPACITY), source, i);
+            instance.addArc(1 + random.nextInt(MAX_CAPACITY), size + i, sink);
+            for (int j = 0; j < degree; j++) {
+                instance.addArc(1 + random.nextInt(MAX_CAPACITY), i, size + random.nextInt(size));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Instance of the family with about the given number of nodes
+     */
+    public static Instance generate(String family, int numberOfNodes) {
+        long seed = 42;
+        switch (family) {
+            case "genrmf-long": {
+                int a = Math.max(2, (int) Math.round(Math.cbrt(numberOfNodes / 4.0)));
+                return genrmf(seed, a, Math.max(2, numberOfNodes / (a * a)), 1, MAX_CAPACITY);
+            }
+            case "genrmf-wide": {
+                int b = Math.max(2, (int) Math.round(Math.cbrt(numberOfNodes) / 2));
+                return genrmf(seed, Math.max(2, (int) Math.sqrt(numberOfNodes / b)), b, 1, MAX_CAPACITY);
+            }
+            case "washington-rlg": {
+                int side = Math.max(2, (int) Math.sqrt(numberOfNodes));
+                return washingtonRlg(seed, side, side);
+            }
+            case "washington-wide":
+                return washingtonWide(seed, Math.max(2, numberOfNodes / 4));
+            case "washington-long":
+                return washingtonLong(seed, Math.max(2, numberOfNodes / 4));
+            case "ak":
+                return ak(Math.max(2, numberOfNodes / 3));
+            case "bipartite":
+                return randomBipartite(seed, Math.max(2, numberOfNodes / 2), 5);
+            default:
+                throw new IllegalArgumentException("Unknown instance family " + family);
+        }
+    }
+
+    private static int[] permutation(Random random, int size) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+}
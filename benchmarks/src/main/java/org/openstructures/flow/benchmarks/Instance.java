@@ -0,0 +1,68 @@
+package org.openstructures.flow.benchmarks;
+
+import org.openstructures.flow.CompactFlowNetwork;
+import org.openstructures.flow.FlowNetwork;
+
+import java.util.Arrays;
+
+import static org.openstructures.flow.ValueNode.node;
+
+/**
+ * Max flow instance as a plain list of arcs, so the same instance can be turned into any kind of network.
+ * Nodes are numbered from 0 to n - 1.
+ */
+public final class Instance {
+    private final int numberOfNodes, source, sink;
+    private int[] tails = new int[16];
+    private int[] heads = new int[16];
+    private int[] capacities = new int[16];
+    private int numberOfArcs;
+
+    Instance(int numberOfNodes, int source, int sink) {
+        this.numberOfNodes = numberOfNodes;
+        this.source = source;
+        this.sink = sink;
+    }
+
+    void addArc(int capacity, int tail, int head) {
+        if (tail == head || capacity == 0) {
+            return;
+        }
+        if (numberOfArcs == tails.length) {
+            tails = Arrays.copyOf(tails, numberOfArcs * 2);
+            heads = Arrays.copyOf(heads, numberOfArcs * 2);
+            capacities = Arrays.copyOf(capacities, numberOfArcs * 2);
+        }
+        tails[numberOfArcs] = tail;
+        heads[numberOfArcs] = head;
+        capacities[numberOfArcs] = capacity;
+        numberOfArcs++;
+    }
+
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    public int getNumberOfArcs() {
+        return numberOfArcs;
+    }
+
+    /**
+     * Nodes are {@link org.openstructures.flow.ValueNode}s holding their numbers, parallel arcs are merged
+     */
+    public FlowNetwork toFlowNetwork() {
+        FlowNetwork flowNetwork = new FlowNetwork(node(source), node(sink));
+        for (int arc = 0; arc < numberOfArcs; arc++) {
+            flowNetwork.increaseArcCapacity(capacities[arc], node(tails[arc]), node(heads[arc]));
+        }
+        return flowNetwork;
+    }
+
+    public CompactFlowNetwork toCompactFlowNetwork() {
+        CompactFlowNetwork.Builder builder = new CompactFlowNetwork.Builder(numberOfNodes, source, sink);
+        for (int arc = 0; arc < numberOfArcs; arc++) {
+            builder.addArc(capacities[arc], tails[arc], heads[arc]);
+        }
+        return builder.build();
+    }
+}
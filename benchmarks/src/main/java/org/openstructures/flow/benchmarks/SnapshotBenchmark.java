@@ -0,0 +1,65 @@
+package org.openstructures.flow.benchmarks;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import org.openjdk.jmh.annotations.*;
+import org.openstructures.flow.FlowNetwork;
+import org.openstructures.flow.Node;
+import org.openstructures.flow.PushRelabelMaxFlow;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What-if analysis: take a snapshot of a solved network, change a few arcs, re-solve and go back to the snapshot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"genrmf-long", "washington-rlg", "bipartite"})
+    public String family;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"1", "10"})
+    public int changedArcs;
+
+    private PushRelabelMaxFlow flow;
+    private Table<Node, Node, Integer> capacityChanges;
+
+    @Setup(Level.Trial)
+    public void solve() {
+        FlowNetwork flowNetwork = Generators.generate(family, size).toFlowNetwork();
+        flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setGlobalRelabelingFrequency(1.0);
+        flow.preflowPush();
+        Random random = new Random(42);
+        capacityChanges = HashBasedTable.create();
+        Node[] tails = flowNetwork.getNodes().toArray(new Node[0]);
+        while (capacityChanges.size() < changedArcs) {
+            Node tail = tails[random.nextInt(tails.length)];
+            if (!flowNetwork.getSuccessors(tail).isEmpty()) {
+                Node head = flowNetwork.getSuccessors(tail).iterator().next();
+                capacityChanges.put(tail, head, 1);
+            }
+        }
+    }
+
+    @Benchmark
+    public PushRelabelMaxFlow.State snapshot() {
+        return flow.getState();
+    }
+
+    @Benchmark
+    public int snapshotChangeAndRestore() {
+        PushRelabelMaxFlow.State state = flow.getState();
+        int flowAmount = flow.changeArcCapacities(capacityChanges);
+        flow.restore(state);
+        return flowAmount;
+    }
+}
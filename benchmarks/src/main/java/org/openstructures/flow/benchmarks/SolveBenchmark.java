@@ -0,0 +1,109 @@
+package org.openstructures.flow.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openstructures.flow.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the maximum flow with every solver. Solvers modify the network, so it's built again before every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+    @Param({"genrmf-long", "genrmf-wide", "washington-rlg", "washington-wide", "washington-long", "ak", "bipartite"})
+    public String family;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private Instance instance;
+    private FlowNetwork flowNetwork;
+    private CompactFlowNetwork compactFlowNetwork;
+    private final PushRelabelWorkspace workspace = new PushRelabelWorkspace();
+
+    @Setup(Level.Trial)
+    public void generate() {
+        instance = Generators.generate(family, size);
+    }
+
+    @Setup(Level.Invocation)
+    public void build() {
+        flowNetwork = instance.toFlowNetwork();
+        compactFlowNetwork = instance.toCompactFlowNetwork();
+    }
+
+    @Benchmark
+    public int preflowPush() {
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setGlobalRelabelingFrequency(1.0);
+        flow.setGapRelabeling(true);
+        flow.preflowPush();
+        return flow.getFlowAmount();
+    }
+
+    @Benchmark
+    public int preflowPushFifo() {
+        return preflowPush(ActiveNodeSelectionStrategy.fifo());
+    }
+
+    @Benchmark
+    public int preflowPushExcessScaling() {
+        return preflowPush(ActiveNodeSelectionStrategy.excessScaling());
+    }
+
+    private int preflowPush(ActiveNodeSelectionStrategy activeNodeSelectionStrategy) {
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setActiveNodeSelectionStrategy(activeNodeSelectionStrategy);
+        flow.setGlobalRelabelingFrequency(1.0);
+        flow.setGapRelabeling(true);
+        flow.preflowPush();
+        return flow.getFlowAmount();
+    }
+
+    @Benchmark
+    public int compactPreflowPush() {
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(compactFlowNetwork);
+        flow.preflowPush();
+        return flow.getFlowAmount();
+    }
+
+    @Benchmark
+    public int compactFindMinCut() {
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(compactFlowNetwork);
+        flow.findMinCut();
+        return flow.getFlowAmount();
+    }
+
+    @Benchmark
+    public int compactFindMinCutWithWorkspace() {
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(compactFlowNetwork, workspace);
+        flow.findMinCut();
+        return flow.getFlowAmount();
+    }
+
+    @Benchmark
+    public int parallelFindMinCut() {
+        ParallelPushRelabelMaxFlow flow = new ParallelPushRelabelMaxFlow(compactFlowNetwork);
+        flow.findMinCut();
+        return flow.getFlowAmount();
+    }
+
+    @Benchmark
+    public int dinic() {
+        MaxFlowSolver flow = new DinicMaxFlow(flowNetwork);
+        flow.solve();
+        return flow.getFlowAmount();
+    }
+
+    @Benchmark
+    public int boykovKolmogorov() {
+        BoykovKolmogorovMaxFlow flow = new BoykovKolmogorovMaxFlow(compactFlowNetwork);
+        flow.solve();
+        return flow.getFlowAmount();
+    }
+}
@@ -0,0 +1,57 @@
+package org.openstructures.flow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Active nodes grouped into buckets by their distance labels.
+ * Keeps track of the highest non-empty bucket, so an active node with the highest label is found in O(1) amortized time:
+ * the pointer only moves up when a node is added and every step down skips a bucket that was emptied before.
+ */
+class ActiveNodeBuckets implements ActiveNodeSelectionStrategy {
+    private final List<Deque<Node>> buckets = new ArrayList<>();
+    private int highestActiveDistance = -1;
+
+    @Override
+    public void add(Node node, int distance, int excess) {
+        add(node, distance);
+    }
+
+    void add(Node node, int distance) {
+        checkNotNull(node);
+        checkArgument(distance >= 0, "Active node %s must have a distance label", node);
+        while (buckets.size() <= distance) {
+            buckets.add(new ArrayDeque<>());
+        }
+        buckets.get(distance).push(node);
+        highestActiveDistance = Math.max(highestActiveDistance, distance);
+    }
+
+    /**
+     * Removes and returns an active node with the highest distance label or null if there are no active nodes.
+     */
+    @Override
+    public Node poll() {
+        while (highestActiveDistance >= 0) {
+            Deque<Node> bucket = buckets.get(highestActiveDistance);
+            if (!bucket.isEmpty()) {
+                return bucket.pop();
+            }
+            highestActiveDistance--;
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i <= highestActiveDistance; i++) {
+            buckets.get(i).clear();
+        }
+        highestActiveDistance = -1;
+    }
+}
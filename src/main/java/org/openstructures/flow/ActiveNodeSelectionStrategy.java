@@ -0,0 +1,59 @@
+package org.openstructures.flow;
+
+/**
+ * Decides which active node {@link PushRelabelMaxFlow} discharges next. The maximum flow is found whatever the order,
+ * but the number of pushes and relabels it takes depends a lot on it, and the best order depends on the network.
+ * Strategies keep their own record of the active nodes, the algorithm tells them about every change that matters,
+ * so choosing a node never takes scanning all the nodes with excess.
+ * <p>
+ * Strategies are stateful, every solver needs its own instance.
+ */
+public interface ActiveNodeSelectionStrategy {
+    /**
+     * Called when the node gets excess, and when it's still active after a discharge, which happens when it got relabeled
+     */
+    void add(Node node, int distance, int excess);
+
+    /**
+     * Called when a node that already has excess gets more. It may be waiting to be discharged or it may be the node being discharged.
+     */
+    default void excessIncreased(Node node, int excess) {
+    }
+
+    /**
+     * Removes and returns the node to discharge next or null if there are no active nodes
+     */
+    Node poll();
+
+    void clear();
+
+    /**
+     * Largest amount of flow that can be pushed into a node with the given excess, unless the node is a source or a sink.
+     * It's not limited by default.
+     */
+    default int getPushLimit(int excess) {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Active node with the highest distance label goes first, which is the default. It's usually the fastest,
+     * as the excess moves towards the sink in big batches.
+     */
+    static ActiveNodeSelectionStrategy highestLabel() {
+        return new ActiveNodeBuckets();
+    }
+
+    /**
+     * Active nodes go in the order they became active
+     */
+    static ActiveNodeSelectionStrategy fifo() {
+        return new FifoActiveNodes();
+    }
+
+    /**
+     * Excess scaling of Ahuja and Orlin, see {@link ExcessScalingActiveNodes}
+     */
+    static ActiveNodeSelectionStrategy excessScaling() {
+        return new ExcessScalingActiveNodes();
+    }
+}
@@ -13,4 +13,16 @@ import java.util.Optional;
  */
 public interface AdmissibleNodeSelectionStrategy {
     Optional<Node> getAdmissibleNode(PushRelabelMaxFlow pushRelabelMaxFlow, Node n);
+
+    /**
+     * Called after distance label of the node has changed. Arcs that weren't admissible before may be admissible now.
+     */
+    default void nodeRelabeled(Node n) {
+    }
+
+    /**
+     * Called when distance labels of all nodes get recalculated or restored.
+     */
+    default void reset() {
+    }
 }
@@ -0,0 +1,53 @@
+package org.openstructures.flow;
+
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Amount of flow going along the arc (tail, head)
+ */
+public class ArcFlow {
+    private final Node tail, head;
+    private final int flow;
+
+    public ArcFlow(Node tail, Node head, int flow) {
+        checkArgument(flow > 0, "Flow must be greater than 0");
+        this.tail = requireNonNull(tail);
+        this.head = requireNonNull(head);
+        this.flow = flow;
+    }
+
+    public Node getTail() {
+        return tail;
+    }
+
+    public Node getHead() {
+        return head;
+    }
+
+    public int getFlow() {
+        return flow;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof ArcFlow) {
+            ArcFlow other = (ArcFlow) obj;
+            return tail.equals(other.tail) && head.equals(other.head) && flow == other.flow;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tail, head, flow);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + tail + "," + head + "): " + flow;
+    }
+}
@@ -0,0 +1,202 @@
+package org.openstructures.flow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Solves many independent networks in parallel, which pays off when they are small and there are a lot of them.
+ * Networks are split into chunks of consecutive networks and every chunk is solved by one task on the executor
+ * with {@link CompactPushRelabelMaxFlow}. Tasks take the solver's arrays from a pool and give them back when they are done,
+ * so there are only as many sets of arrays as tasks running at the same time. This works with any executor, including one
+ * that starts a virtual thread per task, where thread locals would be thrown away with the threads.
+ * <p>
+ * Flow networks are turned into compact networks by the tasks, they are not modified.
+ * Results come in the order of the networks.
+ */
+public class BatchMaxFlow {
+    private final Executor executor;
+    private final Queue<PushRelabelWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+    private int chunkSize = 32;
+
+    /**
+     * Uses the common fork join pool
+     */
+    public BatchMaxFlow() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BatchMaxFlow(Executor executor) {
+        this.executor = requireNonNull(executor);
+    }
+
+    /**
+     * Number of networks solved by one task. Larger chunks cost less to schedule, smaller ones balance the load better.
+     * The default is 32.
+     */
+    public void setChunkSize(int chunkSize) {
+        checkArgument(chunkSize > 0, "Chunk size must be greater than 0");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Waits until all the networks are solved
+     *
+     * @throws IllegalArgumentException if any of the networks has several sources or sinks
+     */
+    public List<Result> solve(Collection<FlowNetwork> flowNetworks) {
+        checkSingleSourcesAndSinks(flowNetworks);
+        return solve(flowNetworks, CompactFlowNetwork::of);
+    }
+
+    /**
+     * Waits until all the networks are solved. The residual capacities of the networks get modified.
+     */
+    public List<Result> solveCompact(Collection<CompactFlowNetwork> networks) {
+        return solve(networks, Function.identity());
+    }
+
+    /**
+     * Starts solving the networks and returns the results as they become available, the stream waits for a chunk
+     * only when it gets to its first network
+     *
+     * @throws IllegalArgumentException if any of the networks has several sources or sinks
+     */
+    public Stream<Result> stream(Collection<FlowNetwork> flowNetworks) {
+        checkSingleSourcesAndSinks(flowNetworks);
+        return stream(flowNetworks, CompactFlowNetwork::of);
+    }
+
+    /**
+     * Networks are turned into compact ones by the tasks, so they are checked beforehand rather than failing half way
+     */
+    private static void checkSingleSourcesAndSinks(Collection<FlowNetwork> flowNetworks) {
+        checkNotNull(flowNetworks);
+        for (FlowNetwork flowNetwork : flowNetworks) {
+            flowNetwork.checkSingleSourceAndSink("Batch max flow");
+        }
+    }
+
+    /**
+     * Same as {@link #stream(Collection)}. The residual capacities of the networks get modified.
+     */
+    public Stream<Result> streamCompact(Collection<CompactFlowNetwork> networks) {
+        return stream(networks, Function.identity());
+    }
+
+    private <T> List<Result> solve(Collection<T> inputs, Function<T, CompactFlowNetwork> toNetwork) {
+        Result[] results = new Result[inputs.size()];
+        CompletableFuture<?>[] chunks = submit(inputs, toNetwork, results);
+        await(CompletableFuture.allOf(chunks));
+        return Arrays.asList(results);
+    }
+
+    private <T> Stream<Result> stream(Collection<T> inputs, Function<T, CompactFlowNetwork> toNetwork) {
+        Result[] results = new Result[inputs.size()];
+        CompletableFuture<?>[] chunks = submit(inputs, toNetwork, results);
+        final int size = chunkSize;
+        return IntStream.range(0, results.length).mapToObj(i -> {
+            await(chunks[i / size]);
+            return results[i];
+        });
+    }
+
+    private <T> CompletableFuture<?>[] submit(Collection<T> inputs, Function<T, CompactFlowNetwork> toNetwork, Result[] results) {
+        checkNotNull(inputs);
+        final List<T> inputList = List.copyOf(inputs);
+        final int size = chunkSize;
+        CompletableFuture<?>[] chunks = new CompletableFuture<?>[(inputList.size() + size - 1) / size];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            final int from = chunk * size;
+            final int to = Math.min(from + size, inputList.size());
+            chunks[chunk] = CompletableFuture.runAsync(() -> {
+                PushRelabelWorkspace workspace = workspaces.poll();
+                if (workspace == null) {
+                    workspace = new PushRelabelWorkspace();
+                }
+                try {
+                    for (int i = from; i < to; i++) {
+                        results[i] = solve(toNetwork.apply(inputList.get(i)), workspace);
+                    }
+                } finally {
+                    workspaces.offer(workspace);
+                }
+            }, executor);
+        }
+        return chunks;
+    }
+
+    private static Result solve(CompactFlowNetwork network, PushRelabelWorkspace workspace) {
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network, workspace);
+        flow.findMinCut();
+        flow.convertPreflowToFlow();
+        return new Result(network, flow.getFlowAmount());
+    }
+
+    private static void await(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Maximum flow of one of the networks
+     */
+    public static class Result {
+        private final CompactFlowNetwork network;
+        private final int flowAmount;
+
+        private Result(CompactFlowNetwork network, int flowAmount) {
+            this.network = requireNonNull(network);
+            this.flowAmount = flowAmount;
+        }
+
+        public int getFlowAmount() {
+            return flowAmount;
+        }
+
+        public Set<Node> getMinCutSourceSide() {
+            return network.getNodesNotReachingSink().stream().mapToObj(network::getNode).collect(Collectors.toUnmodifiableSet());
+        }
+
+        public int getArcFlow(Node tail, Node head) {
+            checkNotNull(tail);
+            checkNotNull(head);
+            return network.getArcFlow(tail, head);
+        }
+
+        public Stream<ArcFlow> getArcFlows() {
+            return network.getArcFlows();
+        }
+
+        /**
+         * Compact network the flow was found in, its residual capacities describe the flow
+         */
+        public CompactFlowNetwork getNetwork() {
+            return network;
+        }
+    }
+}
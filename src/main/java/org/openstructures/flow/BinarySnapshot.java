@@ -0,0 +1,303 @@
+package org.openstructures.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compact binary format for {@link CompactFlowNetwork} with its residual capacities and optionally
+ * the distance labels and excesses of {@link CompactPushRelabelMaxFlow}, so a solved network can be stored and loaded
+ * to query the minimum cut or to carry on with the solve, without rebuilding the network from the source data.
+ * <p>
+ * All numbers are varints. Rows are stored as the number of arcs and heads encoded as differences from the previous head,
+ * which is small for sorted rows. Reverse arcs are not stored, they are found again when the rows are read.
+ * Residual capacities are stored as differences from the capacities, which are 0 for most arcs.
+ * Files are written through a {@link FileChannel} and memory mapped when read. {@link Node} objects are not stored,
+ * the loaded network identifies nodes by ids.
+ */
+public final class BinarySnapshot {
+    private static final int MAGIC = 0x4D58464C; // "MXFL"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long MAX_MAPPED_REGION = 1 << 30;
+
+    private BinarySnapshot() {
+    }
+
+    public static void write(CompactFlowNetwork network, Path path) throws IOException {
+        checkNotNull(network);
+        write(network, null, path);
+    }
+
+    /**
+     * Writes the solver's network together with distance labels and excesses of its nodes
+     */
+    public static void write(CompactPushRelabelMaxFlow flow, Path path) throws IOException {
+        checkNotNull(flow);
+        write(flow.getNetwork(), flow, path);
+    }
+
+    public static CompactFlowNetwork readNetwork(Path path) throws IOException {
+        checkNotNull(path);
+        try (Input input = new Input(path)) {
+            return readNetwork(input);
+        }
+    }
+
+    /**
+     * Reads the network and the solver state written with {@link #write(CompactPushRelabelMaxFlow, Path)}.
+     * Use {@link CompactPushRelabelMaxFlow#convertPreflowToFlow()} to carry on with the solve.
+     */
+    public static CompactPushRelabelMaxFlow readSolver(Path path) throws IOException {
+        checkNotNull(path);
+        try (Input input = new Input(path)) {
+            CompactFlowNetwork network = readNetwork(input);
+            if (input.readVarint() == 0) {
+                throw new IOException("Snapshot doesn't have the solver state");
+            }
+            CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+            int[] distance = flow.distances();
+            int[] excess = flow.excesses();
+            final int n = network.getNumberOfNodes();
+            for (int node = 0; node < n; node++) {
+                distance[node] = input.readVarint();
+                excess[node] = input.readVarint();
+                if (distance[node] < 0 || distance[node] >= 2 * n) {
+                    throw new IOException("Distance of node " + node + " is out of range");
+                }
+                if (excess[node] < 0) {
+                    throw new IOException("Excess of node " + node + " is negative");
+                }
+            }
+            return flow;
+        }
+    }
+
+    private static void write(CompactFlowNetwork network, CompactPushRelabelMaxFlow flow, Path path) throws IOException {
+        checkNotNull(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output output = new Output(channel);
+            output.writeInt(MAGIC);
+            output.writeVarint(VERSION);
+            final int n = network.getNumberOfNodes();
+            output.writeVarint(n);
+            output.writeVarint(network.getSource());
+            output.writeVarint(network.getSink());
+            for (int node = 0; node < n; node++) {
+                output.writeVarint(network.getLastArc(node) - network.getFirstArc(node));
+                int previousHead = 0;
+                for (int arc = network.getFirstArc(node); arc < network.getLastArc(node); arc++) {
+                    output.writeVarint(network.getArcHead(arc) - previousHead);
+                    previousHead = network.getArcHead(arc);
+                }
+            }
+            for (int arc = 0; arc < network.getNumberOfArcs(); arc++) {
+                output.writeVarint(network.getArcCapacity(arc));
+                output.writeVarint(zigZag(network.getArcCapacity(arc) - network.getResidualCapacity(arc)));
+            }
+            if (flow != null) {
+                output.writeVarint(1);
+                for (int node = 0; node < n; node++) {
+                    output.writeVarint(flow.getNodeDistance(node));
+                    output.writeVarint(flow.getNodeExcess(node));
+                }
+            } else {
+                output.writeVarint(0);
+            }
+            output.flush();
+        }
+    }
+
+    private static CompactFlowNetwork readNetwork(Input input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a max flow snapshot");
+        }
+        int version = input.readVarint();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        final int n = input.readVarint();
+        final int source = input.readVarint();
+        final int sink = input.readVarint();
+        if (source >= n || sink >= n || source == sink) {
+            throw new IOException("Source or sink is out of range");
+        }
+        int[] firstArc = new int[n + 1];
+        int[] arcHead = new int[16];
+        for (int node = 0; node < n; node++) {
+            int degree = input.readVarint();
+            firstArc[node + 1] = Math.addExact(firstArc[node], degree);
+            if (firstArc[node + 1] > arcHead.length) {
+                arcHead = Arrays.copyOf(arcHead, Math.max(firstArc[node + 1], 2 * arcHead.length));
+            }
+            int head = 0;
+            for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                int delta = input.readVarint();
+                if (delta < 0 || delta >= n - head) {
+                    throw new IOException("Head of arc " + arc + " is out of range");
+                }
+                if (delta == 0 && arc > firstArc[node]) {
+                    throw new IOException("Node " + node + " has two arcs to node " + head);
+                }
+                head += delta;
+                if (head == node) {
+                    throw new IOException("Arc " + arc + " is a self-loop");
+                }
+                arcHead[arc] = head;
+            }
+        }
+        final int m = firstArc[n];
+        arcHead = Arrays.copyOf(arcHead, m);
+        int[] reverseArc = pairReverseArcs(n, firstArc, arcHead);
+        int[] arcCapacity = new int[m];
+        int[] residualCapacity = new int[m];
+        for (int arc = 0; arc < m; arc++) {
+            arcCapacity[arc] = input.readVarint();
+            if (arcCapacity[arc] < 0) {
+                throw new IOException("Capacity of arc " + arc + " is negative");
+            }
+            long residual = (long) arcCapacity[arc] - unZigZag(input.readVarint());
+            if (residual < 0 || residual > Integer.MAX_VALUE) {
+                throw new IOException("Residual capacity of arc " + arc + " is out of range");
+            }
+            residualCapacity[arc] = (int) residual;
+        }
+        for (int arc = 0; arc < m; arc++) {
+            if (residualCapacity[arc] > (long) arcCapacity[arc] + arcCapacity[reverseArc[arc]]) {
+                throw new IOException("Residual capacity of arc " + arc + " is out of range");
+            }
+        }
+        CompactFlowNetwork network = new CompactFlowNetwork(source, sink, firstArc, arcHead, reverseArc, arcCapacity, null, null);
+        System.arraycopy(residualCapacity, 0, network.residualCapacities(), 0, m);
+        return network;
+    }
+
+    /**
+     * Rows are sorted by head, so the arcs coming to a node from nodes with lower ids are at the start of its row,
+     * in the order of their tails. Visiting the tails in the order of ids pairs them up with a cursor per row.
+     * Afterwards every cursor has to stand at the first arc going to a node with a higher id, otherwise an arc
+     * to a node with a lower id was left without a reverse arc.
+     */
+    private static int[] pairReverseArcs(int n, int[] firstArc, int[] arcHead) throws IOException {
+        int[] reverseArc = new int[arcHead.length];
+        int[] cursor = new int[n];
+        System.arraycopy(firstArc, 0, cursor, 0, n);
+        for (int tail = 0; tail < n; tail++) {
+            for (int arc = firstArc[tail]; arc < firstArc[tail + 1]; arc++) {
+                int head = arcHead[arc];
+                if (head > tail) {
+                    int reverse = cursor[head]++;
+                    if (reverse >= firstArc[head + 1] || arcHead[reverse] != tail) {
+                        throw new IOException("Arc (" + tail + ", " + head + ") doesn't have a reverse arc");
+                    }
+                    reverseArc[arc] = reverse;
+                    reverseArc[reverse] = arc;
+                }
+            }
+        }
+        for (int node = 0; node < n; node++) {
+            if (cursor[node] < firstArc[node + 1] && arcHead[cursor[node]] < node) {
+                throw new IOException("Arc (" + node + ", " + arcHead[cursor[node]] + ") doesn't have a reverse arc");
+            }
+        }
+        return reverseArc;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void writeVarint(int value) throws IOException {
+            if (buffer.remaining() < 5) {
+                flush();
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Maps the file region by region, a single mapping can't be larger than 2GB
+     */
+    private static class Input implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private long regionStart;
+        private MappedByteBuffer region;
+
+        Input(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.region = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_MAPPED_REGION));
+        }
+
+        int readInt() throws IOException {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private int readByte() throws IOException {
+            if (!region.hasRemaining()) {
+                regionStart += region.capacity();
+                if (regionStart >= size) {
+                    throw new IOException("Unexpected end of snapshot");
+                }
+                region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(size - regionStart, MAX_MAPPED_REGION));
+            }
+            return region.get() & 0xFF;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.openstructures.flow;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Maximum matching in a bipartite graph with the Hopcroft-Karp algorithm, in O(E sqrt(V)) time.
+ * It's the same as the maximum flow in a network with arcs of capacity 1 from the source to every left vertex,
+ * from every left vertex to its right neighbors and from every right vertex to the sink, without building such network.
+ * Left vertices have ids from 0 to the number of left vertices - 1, and right vertices have their own ids in the same way.
+ * <p>
+ * Every phase finds the shortest augmenting paths with breadth first search from the free left vertices,
+ * then augments the matching along as many vertex disjoint shortest paths as possible with depth first search.
+ * There are only O(sqrt(V)) phases.
+ */
+public class BipartiteMatching {
+    private static final int FREE = -1;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final int numberOfLeftVertices, numberOfRightVertices;
+    private int[] edgeLeft = new int[16];
+    private int[] edgeRight = new int[16];
+    private int numberOfEdges;
+    private int[] rightMatch; // right vertex matched with the left one
+    private int[] leftMatch;  // left vertex matched with the right one
+    private int matchingSize;
+
+    public BipartiteMatching(int numberOfLeftVertices, int numberOfRightVertices) {
+        checkArgument(numberOfLeftVertices >= 0 && numberOfRightVertices >= 0, "Number of vertices can't be negative");
+        this.numberOfLeftVertices = numberOfLeftVertices;
+        this.numberOfRightVertices = numberOfRightVertices;
+    }
+
+    public BipartiteMatching addEdge(int left, int right) {
+        checkElementIndex(left, numberOfLeftVertices);
+        checkElementIndex(right, numberOfRightVertices);
+        if (numberOfEdges == edgeLeft.length) {
+            edgeLeft = Arrays.copyOf(edgeLeft, 2 * numberOfEdges);
+            edgeRight = Arrays.copyOf(edgeRight, 2 * numberOfEdges);
+        }
+        edgeLeft[numberOfEdges] = left;
+        edgeRight[numberOfEdges] = right;
+        numberOfEdges++;
+        return this;
+    }
+
+    /**
+     * @return the size of the maximum matching, which is also the maximum flow amount of the equivalent network
+     */
+    public int solve() {
+        final int[] firstEdge = new int[numberOfLeftVertices + 1];
+        for (int edge = 0; edge < numberOfEdges; edge++) {
+            firstEdge[edgeLeft[edge] + 1]++;
+        }
+        for (int left = 0; left < numberOfLeftVertices; left++) {
+            firstEdge[left + 1] += firstEdge[left];
+        }
+        final int[] neighbors = new int[numberOfEdges];
+        final int[] nextEdge = Arrays.copyOf(firstEdge, numberOfLeftVertices);
+        for (int edge = 0; edge < numberOfEdges; edge++) {
+            neighbors[nextEdge[edgeLeft[edge]]++] = edgeRight[edge];
+        }
+        rightMatch = new int[numberOfLeftVertices];
+        leftMatch = new int[numberOfRightVertices];
+        Arrays.fill(rightMatch, FREE);
+        Arrays.fill(leftMatch, FREE);
+        matchingSize = matchGreedily(firstEdge, neighbors);
+        final int[] distance = new int[numberOfLeftVertices];
+        final int[] queue = new int[numberOfLeftVertices];
+        final int[] currentEdge = new int[numberOfLeftVertices];
+        final int[] stack = new int[numberOfLeftVertices];
+        while (findShortestAugmentingPaths(firstEdge, neighbors, distance, queue)) {
+            System.arraycopy(firstEdge, 0, currentEdge, 0, numberOfLeftVertices);
+            for (int left = 0; left < numberOfLeftVertices; left++) {
+                if (rightMatch[left] == FREE && augment(left, firstEdge, neighbors, distance, currentEdge, stack)) {
+                    matchingSize++;
+                }
+            }
+        }
+        return matchingSize;
+    }
+
+    /**
+     * A good part of the matching is usually found by simply taking the first free neighbor
+     */
+    private int matchGreedily(int[] firstEdge, int[] neighbors) {
+        int size = 0;
+        for (int left = 0; left < numberOfLeftVertices; left++) {
+            for (int edge = firstEdge[left]; edge < firstEdge[left + 1]; edge++) {
+                int right = neighbors[edge];
+                if (leftMatch[right] == FREE) {
+                    leftMatch[right] = left;
+                    rightMatch[left] = right;
+                    size++;
+                    break;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Breadth first search from all free left vertices along unmatched edges to the right and matched edges back to the left.
+     * Left vertices get their distances from the free ones.
+     *
+     * @return whether some free right vertex can be reached, that is whether the matching can be augmented
+     */
+    private boolean findShortestAugmentingPaths(int[] firstEdge, int[] neighbors, int[] distance, int[] queue) {
+        int queueHead = 0, queueTail = 0;
+        for (int left = 0; left < numberOfLeftVertices; left++) {
+            if (rightMatch[left] == FREE) {
+                distance[left] = 0;
+                queue[queueTail++] = left;
+            } else {
+                distance[left] = UNREACHED;
+            }
+        }
+        boolean freeRightVertexReached = false;
+        while (queueHead < queueTail) {
+            int left = queue[queueHead++];
+            for (int edge = firstEdge[left]; edge < firstEdge[left + 1]; edge++) {
+                int matchedLeft = leftMatch[neighbors[edge]];
+                if (matchedLeft == FREE) {
+                    freeRightVertexReached = true;
+                } else if (distance[matchedLeft] == UNREACHED) {
+                    distance[matchedLeft] = distance[left] + 1;
+                    queue[queueTail++] = matchedLeft;
+                }
+            }
+        }
+        return freeRightVertexReached;
+    }
+
+    /**
+     * Iterative depth first search from the free left vertex along the layers found by the breadth first search.
+     * Left vertices that lead nowhere are taken out of the layers, so no vertex is searched twice in a phase.
+     */
+    private boolean augment(int root, int[] firstEdge, int[] neighbors, int[] distance, int[] currentEdge, int[] stack) {
+        int top = 0;
+        stack[0] = root;
+        while (top >= 0) {
+            final int left = stack[top];
+            if (currentEdge[left] == firstEdge[left + 1]) {
+                distance[left] = UNREACHED;
+                top--;
+                continue;
+            }
+            final int right = neighbors[currentEdge[left]];
+            final int matchedLeft = leftMatch[right];
+            if (matchedLeft == FREE) {
+                for (int i = top; i >= 0; i--) {
+                    int pathLeft = stack[i];
+                    int pathRight = neighbors[currentEdge[pathLeft]];
+                    rightMatch[pathLeft] = pathRight;
+                    leftMatch[pathRight] = pathLeft;
+                }
+                return true;
+            } else if (distance[matchedLeft] == distance[left] + 1) {
+                stack[++top] = matchedLeft;
+            } else {
+                currentEdge[left]++;
+            }
+        }
+        return false;
+    }
+
+    public int getMatchingSize() {
+        checkSolved();
+        return matchingSize;
+    }
+
+    /**
+     * @return right vertex matched with the left one or -1 if it's not matched
+     */
+    public int getRightMatch(int left) {
+        checkElementIndex(left, numberOfLeftVertices);
+        checkSolved();
+        return rightMatch[left];
+    }
+
+    /**
+     * @return left vertex matched with the right one or -1 if it's not matched
+     */
+    public int getLeftMatch(int right) {
+        checkElementIndex(right, numberOfRightVertices);
+        checkSolved();
+        return leftMatch[right];
+    }
+
+    public int getNumberOfLeftVertices() {
+        return numberOfLeftVertices;
+    }
+
+    public int getNumberOfRightVertices() {
+        return numberOfRightVertices;
+    }
+
+    private void checkSolved() {
+        checkState(rightMatch != null, "Matching has not been found yet");
+    }
+}
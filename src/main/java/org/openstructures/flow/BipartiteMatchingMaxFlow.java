@@ -0,0 +1,193 @@
+package org.openstructures.flow;
+
+import com.google.common.collect.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Solves flow networks that are bipartite matching problems with {@link BipartiteMatching}.
+ * Such network has arcs of capacity 1 from the source to the left nodes, arcs of any capacity from the left nodes
+ * to the right nodes and arcs of capacity 1 from the right nodes to the sink, and no other arcs.
+ * Use {@link #of(FlowNetwork)} to check whether the network is one of them.
+ * <p>
+ * The flow network is not modified.
+ */
+public class BipartiteMatchingMaxFlow implements MaxFlowSolver {
+    private final FlowNetwork flowNetwork;
+    private final Node[] leftNodes;
+    private final Node[] rightNodes;
+    private final Map<Node, Integer> leftIds;
+    private final Map<Node, Integer> rightIds;
+    private final BipartiteMatching matching;
+    private boolean solved;
+
+    private BipartiteMatchingMaxFlow(FlowNetwork flowNetwork, Node[] leftNodes, Node[] rightNodes,
+                                     Map<Node, Integer> leftIds, Map<Node, Integer> rightIds) {
+        this.flowNetwork = requireNonNull(flowNetwork);
+        this.leftNodes = leftNodes;
+        this.rightNodes = rightNodes;
+        this.leftIds = leftIds;
+        this.rightIds = rightIds;
+        this.matching = new BipartiteMatching(leftNodes.length, rightNodes.length);
+        for (int left = 0; left < leftNodes.length; left++) {
+            for (Node right : flowNetwork.getSuccessors(leftNodes[left])) {
+                matching.addEdge(left, rightIds.get(right));
+            }
+        }
+    }
+
+    /**
+     * @return the solver if the network is a bipartite matching problem, or empty if it's not
+     */
+    public static Optional<BipartiteMatchingMaxFlow> of(FlowNetwork flowNetwork) {
+        checkNotNull(flowNetwork);
+        if (!flowNetwork.hasSingleSource() || !flowNetwork.hasSingleSink()) {
+            return Optional.empty();
+        }
+        final Node s = flowNetwork.getSource();
+        final Node t = flowNetwork.getSink();
+        if (!flowNetwork.getPredecessors(s).isEmpty() || !flowNetwork.getSuccessors(t).isEmpty()) {
+            return Optional.empty();
+        }
+        Set<Node> left = flowNetwork.getSuccessors(s);
+        Set<Node> right = flowNetwork.getPredecessors(t);
+        if (left.contains(t) || !Sets.intersection(left, right).isEmpty()
+                || flowNetwork.getNumberOfNodes() != left.size() + right.size() + 2) {
+            return Optional.empty();
+        }
+        for (Node node : left) {
+            if (flowNetwork.getArcCapacity(s, node) != 1 || flowNetwork.getPredecessors(node).size() != 1
+                    || !right.containsAll(flowNetwork.getSuccessors(node))) {
+                return Optional.empty();
+            }
+        }
+        for (Node node : right) {
+            if (flowNetwork.getArcCapacity(node, t) != 1 || flowNetwork.getSuccessors(node).size() != 1
+                    || !left.containsAll(flowNetwork.getPredecessors(node))) {
+                return Optional.empty();
+            }
+        }
+        Node[] leftNodes = left.toArray(new Node[0]);
+        Node[] rightNodes = right.toArray(new Node[0]);
+        return Optional.of(new BipartiteMatchingMaxFlow(flowNetwork, leftNodes, rightNodes, ids(leftNodes), ids(rightNodes)));
+    }
+
+    private static Map<Node, Integer> ids(Node[] nodes) {
+        Map<Node, Integer> ids = newHashMap();
+        for (int i = 0; i < nodes.length; i++) {
+            ids.put(nodes[i], i);
+        }
+        return ids;
+    }
+
+    @Override
+    public void solve() {
+        matching.solve();
+        solved = true;
+    }
+
+    /**
+     * Left node matched with the right node or null if it's not matched
+     */
+    public Node getLeftMatch(Node right) {
+        checkNotNull(right);
+        checkSolved();
+        Integer rightId = rightIds.get(right);
+        int left = rightId != null ? matching.getLeftMatch(rightId) : -1;
+        return left >= 0 ? leftNodes[left] : null;
+    }
+
+    /**
+     * Right node matched with the left node or null if it's not matched
+     */
+    public Node getRightMatch(Node left) {
+        checkNotNull(left);
+        checkSolved();
+        Integer leftId = leftIds.get(left);
+        int right = leftId != null ? matching.getRightMatch(leftId) : -1;
+        return right >= 0 ? rightNodes[right] : null;
+    }
+
+    @Override
+    public int getFlowAmount() {
+        checkSolved();
+        return matching.getMatchingSize();
+    }
+
+    /**
+     * Nodes that can't reach the sink in the residual graph of the flow given by the matching
+     */
+    @Override
+    public Set<Node> getMinCutSourceSide() {
+        checkSolved();
+        final Node t = flowNetwork.getSink();
+        Set<Node> sinkSide = newHashSet();
+        sinkSide.add(t);
+        Queue<Node> nodesQueue = new ArrayDeque<>();
+        nodesQueue.add(t);
+        while (!nodesQueue.isEmpty()) {
+            Node head = nodesQueue.poll();
+            for (Node tail : Sets.union(flowNetwork.getPredecessors(head), flowNetwork.getSuccessors(head))) {
+                if (!sinkSide.contains(tail)
+                        && flowNetwork.getArcCapacity(tail, head) - getArcFlow(tail, head) + getArcFlow(head, tail) > 0) {
+                    sinkSide.add(tail);
+                    nodesQueue.add(tail);
+                }
+            }
+        }
+        return Sets.difference(flowNetwork.getNodes(), sinkSide).immutableCopy();
+    }
+
+    @Override
+    public int getArcFlow(Node tail, Node head) {
+        checkNotNull(tail);
+        checkNotNull(head);
+        checkSolved();
+        if (tail.equals(flowNetwork.getSource())) {
+            return leftIds.containsKey(head) && getRightMatch(head) != null ? 1 : 0;
+        }
+        if (head.equals(flowNetwork.getSink())) {
+            return rightIds.containsKey(tail) && getLeftMatch(tail) != null ? 1 : 0;
+        }
+        return head.equals(getRightMatch(tail)) ? 1 : 0;
+    }
+
+    @Override
+    public Stream<ArcFlow> getArcFlows() {
+        checkSolved();
+        final Node s = flowNetwork.getSource();
+        final Node t = flowNetwork.getSink();
+        return IntStream.range(0, leftNodes.length)
+                .filter(left -> matching.getRightMatch(left) >= 0)
+                .boxed()
+                .flatMap(left -> {
+                    Node leftNode = leftNodes[left];
+                    Node rightNode = rightNodes[matching.getRightMatch(left)];
+                    return Stream.of(new ArcFlow(s, leftNode, 1), new ArcFlow(leftNode, rightNode, 1), new ArcFlow(rightNode, t, 1));
+                });
+    }
+
+    /**
+     * The matching found, with left and right node ids as they were given out by this solver
+     */
+    public BipartiteMatching getMatching() {
+        checkSolved();
+        return matching;
+    }
+
+    private void checkSolved() {
+        checkState(solved, "Max flow has not been found yet");
+    }
+}
@@ -0,0 +1,296 @@
+package org.openstructures.flow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Boykov-Kolmogorov algorithm, see "An Experimental Comparison of Min-Cut/Max-Flow Algorithms for Energy Minimization in Vision".
+ * It grows two search trees, one from the source and one from the sink, until they touch, and augments along the path found.
+ * Saturated arcs cut some nodes off their trees; instead of building the trees from scratch, these orphans look for
+ * new parents in the same tree. Only the nodes that can't find one are freed, so the trees are reused between augmentations.
+ * It's not polynomial in theory, but on grid networks with arcs from the source and to the sink on every pixel,
+ * typical for computer vision, it's usually faster than push relabel.
+ * <p>
+ * Every tree node keeps the arc from itself to its parent. For the source tree the residual capacity that matters is the one
+ * of the reverse arc, from the parent, and for the sink tree the one of the arc itself.
+ */
+public class BoykovKolmogorovMaxFlow implements MaxFlowSolver {
+    private static final int FREE = 0, SOURCE_TREE = 1, SINK_TREE = 2;
+    private static final int TERMINAL = -1, ORPHAN = -2;
+
+    private final FlowNetwork flowNetwork;
+    private CompactFlowNetwork network;
+    private int[] tree;
+    private int[] parentArc;
+    private int[] timestamp; // when the distance to the terminal was last checked
+    private int[] distance;  // distance to the terminal along the tree
+    private int[] activeNodes; // circular queue
+    private boolean[] active;
+    private int activeHead, numberOfActiveNodes;
+    private int[] orphans;
+    private int numberOfOrphans;
+    private int time;
+    private int flowAmount;
+
+    /**
+     * The flow network is turned into the residual graph once the flow is found, like with the other solvers
+     *
+     * @throws IllegalArgumentException if the network has several sources or sinks
+     */
+    public BoykovKolmogorovMaxFlow(FlowNetwork flowNetwork) {
+        this.flowNetwork = requireNonNull(flowNetwork);
+        flowNetwork.checkSingleSourceAndSink("Boykov-Kolmogorov algorithm");
+    }
+
+    /**
+     * Runs on the compact network directly, for example one built with {@link GridNetworkBuilder}
+     */
+    public BoykovKolmogorovMaxFlow(CompactFlowNetwork network) {
+        this.flowNetwork = null;
+        this.network = requireNonNull(network);
+    }
+
+    @Override
+    public void solve() {
+        if (flowNetwork != null) {
+            network = CompactFlowNetwork.of(flowNetwork);
+        }
+        final int n = network.getNumberOfNodes();
+        tree = new int[n];
+        parentArc = new int[n];
+        timestamp = new int[n];
+        distance = new int[n];
+        activeNodes = new int[n];
+        active = new boolean[n];
+        orphans = new int[n];
+        activeHead = 0;
+        numberOfActiveNodes = 0;
+        numberOfOrphans = 0;
+        time = 0;
+        flowAmount = 0;
+        Arrays.fill(parentArc, ORPHAN);
+        final int s = network.getSource();
+        final int t = network.getSink();
+        tree[s] = SOURCE_TREE;
+        tree[t] = SINK_TREE;
+        parentArc[s] = TERMINAL;
+        parentArc[t] = TERMINAL;
+        addActiveNode(s);
+        addActiveNode(t);
+        int arc;
+        while ((arc = grow()) >= 0) {
+            time++;
+            augment(arc);
+            adoptOrphans();
+        }
+        if (flowNetwork != null) {
+            network.copyResidualCapacitiesTo(flowNetwork);
+        }
+    }
+
+    /**
+     * Active nodes grow their trees by taking free neighbors in.
+     *
+     * @return arc from the source tree to the sink tree with positive residual capacity or -1 if the trees can't meet anymore
+     */
+    private int grow() {
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        while (numberOfActiveNodes > 0) {
+            final int node = activeNodes[activeHead];
+            final int nodeTree = tree[node];
+            if (nodeTree != FREE) {
+                for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                    int treeArc = nodeTree == SOURCE_TREE ? arc : reverse[arc]; // the arc in the direction of the flow
+                    if (residual[treeArc] > 0) {
+                        int head = heads[arc];
+                        if (tree[head] == FREE) {
+                            tree[head] = nodeTree;
+                            parentArc[head] = reverse[arc];
+                            timestamp[head] = timestamp[node];
+                            distance[head] = distance[node] + 1;
+                            addActiveNode(head);
+                        } else if (tree[head] != nodeTree) {
+                            return treeArc; // the node stays active, it may have more arcs to the other tree
+                        }
+                    }
+                }
+            }
+            removeActiveNode();
+        }
+        return -1;
+    }
+
+    /**
+     * Pushes the bottleneck capacity along the path through the arc, nodes below the saturated arcs become orphans.
+     */
+    private void augment(int middleArc) {
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        int amount = residual[middleArc];
+        for (int node = heads[reverse[middleArc]]; parentArc[node] != TERMINAL; node = heads[parentArc[node]]) {
+            amount = Math.min(amount, residual[reverse[parentArc[node]]]);
+        }
+        for (int node = heads[middleArc]; parentArc[node] != TERMINAL; node = heads[parentArc[node]]) {
+            amount = Math.min(amount, residual[parentArc[node]]);
+        }
+        residual[middleArc] -= amount;
+        residual[reverse[middleArc]] += amount;
+        for (int node = heads[reverse[middleArc]]; parentArc[node] != TERMINAL; ) {
+            int arc = parentArc[node];
+            residual[reverse[arc]] -= amount;
+            residual[arc] += amount;
+            if (residual[reverse[arc]] == 0) {
+                makeOrphan(node);
+            }
+            node = heads[arc];
+        }
+        for (int node = heads[middleArc]; parentArc[node] != TERMINAL; ) {
+            int arc = parentArc[node];
+            residual[arc] -= amount;
+            residual[reverse[arc]] += amount;
+            if (residual[arc] == 0) {
+                makeOrphan(node);
+            }
+            node = heads[arc];
+        }
+        flowAmount = Math.addExact(flowAmount, amount);
+    }
+
+    /**
+     * Every orphan looks for a new parent in its tree, the one closest to the terminal.
+     * An orphan that can't find one becomes free, its children become orphans and the neighbors that could take it back
+     * into the tree become active.
+     */
+    private void adoptOrphans() {
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        while (numberOfOrphans > 0) {
+            final int node = orphans[--numberOfOrphans];
+            final int nodeTree = tree[node];
+            int newParentArc = ORPHAN;
+            int minDistance = Integer.MAX_VALUE;
+            for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                int head = heads[arc];
+                if (tree[head] == nodeTree && residual[nodeTree == SOURCE_TREE ? reverse[arc] : arc] > 0) {
+                    int headDistance = distanceToTerminal(head);
+                    if (headDistance < minDistance) {
+                        minDistance = headDistance;
+                        newParentArc = arc;
+                    }
+                }
+            }
+            if (newParentArc != ORPHAN) {
+                parentArc[node] = newParentArc;
+                timestamp[node] = time;
+                distance[node] = minDistance + 1;
+            } else {
+                for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                    int head = heads[arc];
+                    if (tree[head] == nodeTree) {
+                        if (residual[nodeTree == SOURCE_TREE ? reverse[arc] : arc] > 0) {
+                            addActiveNode(head);
+                        }
+                        if (parentArc[head] >= 0 && heads[parentArc[head]] == node) {
+                            makeOrphan(head);
+                        }
+                    }
+                }
+                tree[node] = FREE;
+            }
+        }
+    }
+
+    /**
+     * Follows the parents up to the terminal or to a node that has been checked since the last augmentation.
+     * Distances of the nodes on the way are updated, so they don't have to be followed again.
+     *
+     * @return Integer.MAX_VALUE if the node is cut off from the terminal
+     */
+    private int distanceToTerminal(int node) {
+        final int[] heads = network.arcHeads();
+        int steps = 0;
+        int ancestor = node;
+        while (timestamp[ancestor] != time) {
+            int arc = parentArc[ancestor];
+            if (arc == TERMINAL) {
+                timestamp[ancestor] = time;
+                distance[ancestor] = 0;
+                break;
+            }
+            if (arc == ORPHAN) {
+                return Integer.MAX_VALUE;
+            }
+            steps++;
+            ancestor = heads[arc];
+        }
+        final int nodeDistance = steps + distance[ancestor];
+        int d = nodeDistance;
+        for (int n = node; timestamp[n] != time; n = heads[parentArc[n]]) {
+            timestamp[n] = time;
+            distance[n] = d--;
+        }
+        return nodeDistance;
+    }
+
+    private void makeOrphan(int node) {
+        parentArc[node] = ORPHAN;
+        orphans[numberOfOrphans++] = node;
+    }
+
+    private void addActiveNode(int node) {
+        if (!active[node]) {
+            active[node] = true;
+            activeNodes[(activeHead + numberOfActiveNodes) % activeNodes.length] = node;
+            numberOfActiveNodes++;
+        }
+    }
+
+    private void removeActiveNode() {
+        active[activeNodes[activeHead]] = false;
+        activeHead = (activeHead + 1) % activeNodes.length;
+        numberOfActiveNodes--;
+    }
+
+    @Override
+    public int getFlowAmount() {
+        return flowAmount;
+    }
+
+    @Override
+    public Set<Node> getMinCutSourceSide() {
+        checkSolved();
+        BitSet sourceSide = network.getNodesNotReachingSink();
+        return sourceSide.stream().mapToObj(network::getNode).collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public int getArcFlow(Node tail, Node head) {
+        checkNotNull(tail);
+        checkNotNull(head);
+        checkSolved();
+        return network.getArcFlow(tail, head);
+    }
+
+    @Override
+    public Stream<ArcFlow> getArcFlows() {
+        checkSolved();
+        return network.getArcFlows();
+    }
+
+    private void checkSolved() {
+        checkState(tree != null, "Max flow has not been found yet");
+    }
+}
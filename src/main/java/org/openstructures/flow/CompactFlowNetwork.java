@@ -0,0 +1,410 @@
+package org.openstructures.flow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compact representation of the residual graph of a flow network.
+ * Nodes are identified by dense int ids from 0 to n - 1 and arcs are stored in compressed sparse row arrays:
+ * arcs going out of node i have indexes from {@link #getFirstArc(int)} (inclusive) to {@link #getLastArc(int)} (exclusive)
+ * and are sorted by their heads.
+ * Every arc (i,j) is paired with its reverse arc (j,i), so pushing flow along an arc updates residual capacities of both arcs
+ * without any lookups. Parallel arcs are merged and antiparallel arcs share the same pair.
+ */
+public class CompactFlowNetwork {
+    private final int source, sink;
+    private final int[] firstArc;
+    private final int[] arcHead;
+    private final int[] reverseArc;
+    private final int[] arcCapacity;
+    private final int[] residualCapacity;
+    private final Node[] nodes;
+    private final Map<Node, Integer> nodeIds;
+
+    CompactFlowNetwork(int source, int sink, int[] firstArc, int[] arcHead, int[] reverseArc, int[] arcCapacity,
+                               Node[] nodes, Map<Node, Integer> nodeIds) {
+        this.source = source;
+        this.sink = sink;
+        this.firstArc = requireNonNull(firstArc);
+        this.arcHead = requireNonNull(arcHead);
+        this.reverseArc = requireNonNull(reverseArc);
+        this.arcCapacity = requireNonNull(arcCapacity);
+        this.residualCapacity = arcCapacity.clone();
+        this.nodes = nodes;
+        this.nodeIds = nodeIds;
+    }
+
+    /**
+     * Creates compact copy of the flow network. Nodes get ids in no particular order, use {@link #getNodeId(Node)} to find them.
+     * The flow network is not modified.
+     *
+     * @throws IllegalArgumentException if the network has several sources or sinks
+     */
+    public static CompactFlowNetwork of(FlowNetwork flowNetwork) {
+        checkNotNull(flowNetwork);
+        flowNetwork.checkSingleSourceAndSink("Compact flow network");
+        return of(flowNetwork, flowNetwork.getSource(), flowNetwork.getSink());
+    }
+
+    /**
+     * Compact copy with the given terminals, for algorithms that pick their own
+     */
+    static CompactFlowNetwork of(FlowNetwork flowNetwork, Node source, Node sink) {
+        Set<Node> allNodes = flowNetwork.getNodes();
+        Node[] nodes = allNodes.toArray(new Node[0]);
+        Map<Node, Integer> nodeIds = newHashMapWithExpectedSize(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            nodeIds.put(nodes[i], i);
+        }
+        Builder builder = new Builder(nodes.length, nodeIds.get(source), nodeIds.get(sink));
+        for (Node tail : nodes) {
+            int tailId = nodeIds.get(tail);
+            for (Node head : flowNetwork.getSuccessors(tail)) {
+                builder.addArc(flowNetwork.getArcCapacity(tail, head), tailId, nodeIds.get(head));
+            }
+        }
+        return builder.build(nodes, nodeIds);
+    }
+
+    public int getNumberOfNodes() {
+        return firstArc.length - 1;
+    }
+
+    /**
+     * Number of arcs including reverse ones
+     */
+    public int getNumberOfArcs() {
+        return arcHead.length;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getSink() {
+        return sink;
+    }
+
+    public int getFirstArc(int node) {
+        checkElementIndex(node, getNumberOfNodes());
+        return firstArc[node];
+    }
+
+    public int getLastArc(int node) {
+        checkElementIndex(node, getNumberOfNodes());
+        return firstArc[node + 1];
+    }
+
+    public int getArcHead(int arc) {
+        return arcHead[arc];
+    }
+
+    public int getReverseArc(int arc) {
+        return reverseArc[arc];
+    }
+
+    /**
+     * Capacity the arc had when this network was built
+     */
+    public int getArcCapacity(int arc) {
+        return arcCapacity[arc];
+    }
+
+    public int getResidualCapacity(int arc) {
+        return residualCapacity[arc];
+    }
+
+    /**
+     * @return index of the arc (tail, head) or -1 if nodes are not adjacent
+     */
+    public int getArc(int tail, int head) {
+        checkElementIndex(tail, getNumberOfNodes());
+        int index = Arrays.binarySearch(arcHead, firstArc[tail], firstArc[tail + 1], head);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Flow going along the arc, that is how much its residual capacity went down since the network was built.
+     * Only the net flow is counted for a pair of antiparallel arcs, so at most one of them has positive flow.
+     */
+    public int getArcFlow(int arc) {
+        return Math.max(arcCapacity[arc] - residualCapacity[arc], 0);
+    }
+
+    public int getArcFlow(Node tail, Node head) {
+        int arc = getArc(getNodeId(tail), getNodeId(head));
+        return arc >= 0 ? getArcFlow(arc) : 0;
+    }
+
+    /**
+     * Indexes of all the arcs that carry flow
+     */
+    public IntStream getArcsWithFlow() {
+        return IntStream.range(0, arcHead.length).filter(arc -> residualCapacity[arc] < arcCapacity[arc]);
+    }
+
+    /**
+     * All arcs that carry flow, with their nodes
+     */
+    public Stream<ArcFlow> getArcFlows() {
+        return getArcsWithFlow()
+                .filter(arc -> getArcFlow(arc) > 0)
+                .mapToObj(arc -> new ArcFlow(getNode(arcHead[reverseArc[arc]]), getNode(arcHead[arc]), getArcFlow(arc)));
+    }
+
+    public int getResidualCapacity(Node tail, Node head) {
+        int arc = getArc(getNodeId(tail), getNodeId(head));
+        return arc >= 0 ? residualCapacity[arc] : 0;
+    }
+
+    /**
+     * Ids of the nodes that can't reach the sink in the residual graph.
+     * Once the maximum flow (or preflow) has been found, these nodes are the source side of the minimum cut.
+     */
+    public BitSet getNodesNotReachingSink() {
+        final int n = getNumberOfNodes();
+        BitSet notReachingSink = new BitSet(n);
+        notReachingSink.set(0, n);
+        notReachingSink.clear(sink);
+        int[] queue = new int[n];
+        int queueHead = 0, queueTail = 0;
+        queue[queueTail++] = sink;
+        while (queueHead < queueTail) {
+            int node = queue[queueHead++];
+            for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                int tail = arcHead[arc];
+                if (notReachingSink.get(tail) && residualCapacity[reverseArc[arc]] > 0) {
+                    notReachingSink.clear(tail);
+                    queue[queueTail++] = tail;
+                }
+            }
+        }
+        return notReachingSink;
+    }
+
+    /**
+     * Pushes specified amount of flow along the arc. The amount can't exceed residual capacity of the arc.
+     */
+    public void pushFlow(int amount, int arc) {
+        checkArgument(amount > 0, "Amount of flow must be greater than 0");
+        checkArgument(amount <= residualCapacity[arc], "Can't push more than residual capacity");
+        residualCapacity[arc] -= amount;
+        residualCapacity[reverseArc[arc]] += amount;
+    }
+
+    /**
+     * Sets residual capacities back to the capacities the arcs had when this network was built, so it can be solved again
+     * without building it from scratch
+     */
+    public void resetResidualCapacities() {
+        System.arraycopy(arcCapacity, 0, residualCapacity, 0, arcCapacity.length);
+    }
+
+    /**
+     * Network with the same arcs and another source and sink. The arc arrays are shared with this network,
+     * only the residual capacities are not, and they start from the capacities the arcs had when this network was built.
+     */
+    public CompactFlowNetwork withTerminals(int source, int sink) {
+        checkElementIndex(source, getNumberOfNodes());
+        checkElementIndex(sink, getNumberOfNodes());
+        checkArgument(source != sink, "Source and sink must be different nodes");
+        return new CompactFlowNetwork(source, sink, firstArc, arcHead, reverseArc, arcCapacity, nodes, nodeIds);
+    }
+
+    /**
+     * Node with the given id. Networks that were built from node ids map them to {@link ValueNode}s holding the id.
+     */
+    public Node getNode(int id) {
+        checkElementIndex(id, getNumberOfNodes());
+        return nodes != null ? nodes[id] : ValueNode.node(id);
+    }
+
+    public int getNodeId(Node node) {
+        checkNotNull(node);
+        if (nodeIds != null) {
+            Integer id = nodeIds.get(node);
+            checkArgument(id != null, "Node %s does not belong to this network", node);
+            return id;
+        }
+        checkArgument(node instanceof ValueNode && ((ValueNode<?>) node).getValue() instanceof Integer,
+                "Node %s does not belong to this network", node);
+        int id = (Integer) ((ValueNode<?>) node).getValue();
+        checkElementIndex(id, getNumberOfNodes());
+        return id;
+    }
+
+    /**
+     * Sets capacities of the flow network's arcs to the residual capacities of this network, if they have changed.
+     * This network must have been created from the flow network.
+     */
+    void copyResidualCapacitiesTo(FlowNetwork flowNetwork) {
+        for (int arc = 0; arc < arcHead.length; arc++) {
+            if (residualCapacity[arc] != arcCapacity[arc]) {
+                flowNetwork.setArcCapacity(residualCapacity[arc], getNode(arcHead[reverseArc[arc]]), getNode(arcHead[arc]));
+            }
+        }
+    }
+
+    int[] firstArcs() {
+        return firstArc;
+    }
+
+    int[] arcHeads() {
+        return arcHead;
+    }
+
+    int[] reverseArcs() {
+        return reverseArc;
+    }
+
+    int[] residualCapacities() {
+        return residualCapacity;
+    }
+
+    /**
+     * Collects arcs of a network with known number of nodes and turns them into compressed sparse rows.
+     * Arcs don't have to be added in any particular order.
+     */
+    public static class Builder {
+        private final int numberOfNodes, source, sink;
+        private int[] tails = new int[16];
+        private int[] heads = new int[16];
+        private int[] capacities = new int[16];
+        private int numberOfArcs;
+
+        public Builder(int numberOfNodes, int source, int sink) {
+            checkArgument(numberOfNodes >= 2, "Network must have at least source and sink");
+            checkElementIndex(source, numberOfNodes);
+            checkElementIndex(sink, numberOfNodes);
+            checkArgument(source != sink, "Source and sink must be different nodes");
+            this.numberOfNodes = numberOfNodes;
+            this.source = source;
+            this.sink = sink;
+        }
+
+        /**
+         * Makes room for the expected number of arcs at once, so the arrays don't have to grow one doubling at a time
+         */
+        void ensureArcCapacity(int expectedNumberOfArcs) {
+            if (expectedNumberOfArcs > tails.length) {
+                tails = Arrays.copyOf(tails, expectedNumberOfArcs);
+                heads = Arrays.copyOf(heads, expectedNumberOfArcs);
+                capacities = Arrays.copyOf(capacities, expectedNumberOfArcs);
+            }
+        }
+
+        /**
+         * Adds arc (tail, head). Capacities of parallel arcs are summed up, arcs with zero capacity are ignored.
+         */
+        public Builder addArc(int capacity, int tail, int head) {
+            checkArgument(capacity >= 0);
+            checkElementIndex(tail, numberOfNodes);
+            checkElementIndex(head, numberOfNodes);
+            checkArgument(tail != head);
+            if (capacity > 0) {
+                if (numberOfArcs == tails.length) {
+                    int newLength = tails.length * 2;
+                    tails = Arrays.copyOf(tails, newLength);
+                    heads = Arrays.copyOf(heads, newLength);
+                    capacities = Arrays.copyOf(capacities, newLength);
+                }
+                tails[numberOfArcs] = tail;
+                heads[numberOfArcs] = head;
+                capacities[numberOfArcs] = capacity;
+                numberOfArcs++;
+            }
+            return this;
+        }
+
+        public CompactFlowNetwork build() {
+            return build(null, null);
+        }
+
+        private CompactFlowNetwork build(Node[] nodes, Map<Node, Integer> nodeIds) {
+            // arcs are grouped by the unordered pair of their end nodes, so parallel and antiparallel arcs end up next to each other
+            int[] order = new int[numberOfArcs];
+            for (int i = 0; i < numberOfArcs; i++) {
+                order[i] = i;
+            }
+            order = sortByEndNode(sortByEndNode(order, false), true);
+
+            int[] pairLower = new int[numberOfArcs];
+            int[] pairUpper = new int[numberOfArcs];
+            int[] lowerToUpperCapacity = new int[numberOfArcs];
+            int[] upperToLowerCapacity = new int[numberOfArcs];
+            int numberOfPairs = 0;
+            for (int i = 0; i < numberOfArcs; i++) {
+                int arc = order[i];
+                int lower = Math.min(tails[arc], heads[arc]);
+                int upper = Math.max(tails[arc], heads[arc]);
+                if (numberOfPairs == 0 || pairLower[numberOfPairs - 1] != lower || pairUpper[numberOfPairs - 1] != upper) {
+                    pairLower[numberOfPairs] = lower;
+                    pairUpper[numberOfPairs] = upper;
+                    numberOfPairs++;
+                }
+                if (tails[arc] == lower) {
+                    lowerToUpperCapacity[numberOfPairs - 1] = Math.addExact(lowerToUpperCapacity[numberOfPairs - 1], capacities[arc]);
+                } else {
+                    upperToLowerCapacity[numberOfPairs - 1] = Math.addExact(upperToLowerCapacity[numberOfPairs - 1], capacities[arc]);
+                }
+            }
+
+            int[] firstArc = new int[numberOfNodes + 1];
+            for (int p = 0; p < numberOfPairs; p++) {
+                firstArc[pairLower[p] + 1]++;
+                firstArc[pairUpper[p] + 1]++;
+            }
+            for (int i = 0; i < numberOfNodes; i++) {
+                firstArc[i + 1] += firstArc[i];
+            }
+            int[] nextArc = Arrays.copyOf(firstArc, numberOfNodes);
+            int[] arcHead = new int[2 * numberOfPairs];
+            int[] reverseArc = new int[2 * numberOfPairs];
+            int[] arcCapacity = new int[2 * numberOfPairs];
+            // pairs are sorted by lower and then by upper end, so every row ends up sorted by head
+            for (int p = 0; p < numberOfPairs; p++) {
+                int forward = nextArc[pairLower[p]]++;
+                int backward = nextArc[pairUpper[p]]++;
+                arcHead[forward] = pairUpper[p];
+                arcHead[backward] = pairLower[p];
+                reverseArc[forward] = backward;
+                reverseArc[backward] = forward;
+                arcCapacity[forward] = lowerToUpperCapacity[p];
+                arcCapacity[backward] = upperToLowerCapacity[p];
+            }
+            return new CompactFlowNetwork(source, sink, firstArc, arcHead, reverseArc, arcCapacity, nodes, nodeIds);
+        }
+
+        /**
+         * Stable counting sort of arcs by their lower or upper end node
+         */
+        private int[] sortByEndNode(int[] arcs, boolean lowerEnd) {
+            int[] count = new int[numberOfNodes + 1];
+            for (int arc : arcs) {
+                count[endNode(arc, lowerEnd) + 1]++;
+            }
+            for (int i = 0; i < numberOfNodes; i++) {
+                count[i + 1] += count[i];
+            }
+            int[] sorted = new int[arcs.length];
+            for (int arc : arcs) {
+                sorted[count[endNode(arc, lowerEnd)]++] = arc;
+            }
+            return sorted;
+        }
+
+        private int endNode(int arc, boolean lowerEnd) {
+            return lowerEnd ? Math.min(tails[arc], heads[arc]) : Math.max(tails[arc], heads[arc]);
+        }
+    }
+}
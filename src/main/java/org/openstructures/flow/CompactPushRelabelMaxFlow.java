@@ -0,0 +1,323 @@
+package org.openstructures.flow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Push relabel algorithm that runs on {@link CompactFlowNetwork}.
+ * Like {@link PushRelabelMaxFlow} it selects an active node with the highest distance label, but active nodes are kept
+ * in buckets indexed by distance label and admissible arcs are found with current arc pointers.
+ * This way the main loop works with int arrays only and doesn't touch {@link Node} objects at all.
+ * <p>
+ * Global and gap relabeling are on by default, see {@link #setGlobalRelabelingFrequency(double)} and {@link #setGapRelabeling(boolean)}.
+ * <p>
+ * As the algorithm runs the residual capacities of the network get modified.
+ */
+public class CompactPushRelabelMaxFlow {
+    private static final int NONE = -1;
+
+    private final CompactFlowNetwork network;
+    private final int n;
+    private final int[] distance;
+    private final int[] excess;
+    private final int[] currentArc;
+    private final int[] bucketFirst; // first active node in the bucket of given distance label
+    private final int[] nextActive;  // next active node in the same bucket
+    private final int[] queue;
+    private final int[] labelCount; // number of nodes with given distance label, for labels below n
+    private int highestActiveDistance = NONE;
+    private double globalRelabelingFrequency = 1;
+    private int relabelsSinceGlobalRelabel;
+    private boolean gapRelabeling = true;
+
+    public CompactPushRelabelMaxFlow(CompactFlowNetwork network) {
+        this(network, new PushRelabelWorkspace());
+    }
+
+    /**
+     * The solver works in the arrays of the workspace, so it can't be used anymore once the workspace is given to another solver
+     */
+    public CompactPushRelabelMaxFlow(CompactFlowNetwork network, PushRelabelWorkspace workspace) {
+        this.network = requireNonNull(network);
+        checkNotNull(workspace);
+        this.n = network.getNumberOfNodes();
+        workspace.ensureCapacity(n);
+        this.distance = workspace.distance;
+        this.excess = workspace.excess;
+        this.currentArc = workspace.currentArc;
+        this.bucketFirst = workspace.bucketFirst;
+        this.nextActive = workspace.nextActive;
+        this.queue = workspace.queue;
+        this.labelCount = workspace.labelCount;
+        Arrays.fill(excess, 0, n, 0);
+        System.arraycopy(network.firstArcs(), 0, currentArc, 0, n);
+    }
+
+    /**
+     * Global relabeling is done after every frequency * n relabels, see {@link PushRelabelMaxFlow#setGlobalRelabelingFrequency(double)}.
+     * 0 turns it off, the default is 1.
+     */
+    public void setGlobalRelabelingFrequency(double frequency) {
+        checkArgument(frequency >= 0, "Frequency can't be negative");
+        this.globalRelabelingFrequency = frequency;
+    }
+
+    /**
+     * See {@link PushRelabelMaxFlow#setGapRelabeling(boolean)}, it's on by default
+     */
+    public void setGapRelabeling(boolean gapRelabeling) {
+        this.gapRelabeling = gapRelabeling;
+    }
+
+    public void preflowPush() {
+        preprocess();
+        pushRelabel(Integer.MAX_VALUE);
+    }
+
+    /**
+     * The first phase of the algorithm, see {@link PushRelabelMaxFlow#findMinCut()}.
+     * Only nodes with distance labels below n get discharged, which is enough to find the flow amount and the minimum cut.
+     */
+    public void findMinCut() {
+        preprocess();
+        pushRelabel(n);
+    }
+
+    /**
+     * The second phase of the algorithm. Returns the excess left after {@link #findMinCut()} to the source.
+     */
+    public void convertPreflowToFlow() {
+        collectActiveNodes();
+        pushRelabel(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Ids of the nodes that can't reach the sink in the residual graph, that is the source side of the minimum cut.
+     */
+    public BitSet getMinCutSourceSide() {
+        return network.getNodesNotReachingSink();
+    }
+
+    /**
+     * Calculates nodes' distances and floods all nodes adjacent to the source.
+     */
+    public void preprocess() {
+        final int s = network.getSource();
+        final int[] heads = network.arcHeads();
+        final int[] residual = network.residualCapacities();
+        calculateDistances();
+        collectActiveNodes();
+        for (int arc = network.getFirstArc(s); arc < network.getLastArc(s); arc++) {
+            int head = heads[arc];
+            if (residual[arc] > 0 && distance[head] < n) { // no point flooding nodes that can't reach the sink
+                int amount = residual[arc];
+                residual[arc] = 0;
+                residual[network.getReverseArc(arc)] += amount;
+                addToExcess(amount, head);
+            }
+        }
+    }
+
+    /**
+     * Exact distances to the sink are found with breadth first search over reverse residual arcs.
+     * Nodes that can't reach the sink but can reach the source get n plus their distance to the source,
+     * so their excess goes straight back to the source. Nodes that can reach neither get 2n - 1, they never get any excess.
+     */
+    public void calculateDistances() {
+        Arrays.fill(distance, 0, n, NONE);
+        System.arraycopy(network.firstArcs(), 0, currentArc, 0, n);
+        distance[network.getSink()] = 0;
+        distance[network.getSource()] = n;
+        calculateDistances(network.getSink());
+        calculateDistances(network.getSource());
+        for (int node = 0; node < n; node++) {
+            if (distance[node] == NONE) {
+                distance[node] = 2 * n - 1;
+            }
+        }
+        relabelsSinceGlobalRelabel = 0;
+    }
+
+    /**
+     * Labels nodes that have not been labeled yet and can reach the root in the residual graph
+     */
+    private void calculateDistances(int root) {
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        int queueHead = 0, queueTail = 0;
+        queue[queueTail++] = root;
+        while (queueHead < queueTail) {
+            int node = queue[queueHead++];
+            for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                int tail = heads[arc];
+                if (distance[tail] == NONE && residual[reverse[arc]] > 0) {
+                    distance[tail] = distance[node] + 1;
+                    queue[queueTail++] = tail;
+                }
+            }
+        }
+    }
+
+    /**
+     * Also counts the distance labels, labels may have been set from outside, see {@link BinarySnapshot}
+     */
+    private void collectActiveNodes() {
+        Arrays.fill(bucketFirst, 0, 2 * n, NONE);
+        Arrays.fill(labelCount, 0, n, 0);
+        highestActiveDistance = NONE;
+        for (int node = 0; node < n; node++) {
+            if (distance[node] < n) {
+                labelCount[distance[node]]++;
+            }
+            if (isActive(node)) {
+                addActiveNode(node);
+            }
+        }
+    }
+
+    /**
+     * Active nodes with distance labels not below the limit are left with their excess.
+     */
+    private void pushRelabel(int distanceLimit) {
+        while (highestActiveDistance >= 0) {
+            int node = bucketFirst[highestActiveDistance];
+            if (node == NONE) {
+                highestActiveDistance--;
+            } else {
+                bucketFirst[highestActiveDistance] = nextActive[node];
+                if (distance[node] < distanceLimit) {
+                    discharge(node, distanceLimit);
+                    if (globalRelabelingFrequency > 0 && relabelsSinceGlobalRelabel >= globalRelabelingFrequency * n) {
+                        calculateDistances();
+                        collectActiveNodes();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes flow along admissible arcs starting from the current arc of the node and relabels the node
+     * whenever it runs out of arcs, until all of its excess is gone or its distance label reaches the limit.
+     */
+    private void discharge(int node, int distanceLimit) {
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        int arc = currentArc[node];
+        while (excess[node] > 0) {
+            if (arc == firstArc[node + 1]) {
+                relabel(node);
+                arc = firstArc[node];
+                if (distance[node] >= distanceLimit) {
+                    break;
+                }
+            } else {
+                int head = heads[arc];
+                if (residual[arc] > 0 && distance[node] == distance[head] + 1) {
+                    int amount = Math.min(excess[node], residual[arc]);
+                    residual[arc] -= amount;
+                    residual[reverse[arc]] += amount;
+                    excess[node] -= amount;
+                    addToExcess(amount, head);
+                } else {
+                    arc++;
+                }
+            }
+        }
+        currentArc[node] = arc;
+    }
+
+    private void relabel(int node) {
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] residual = network.residualCapacities();
+        int minDistance = Integer.MAX_VALUE;
+        for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+            if (residual[arc] > 0) {
+                minDistance = Math.min(minDistance, distance[heads[arc]]);
+            }
+        }
+        if (minDistance == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Active node " + network.getNode(node) + " does not have successors.");
+        }
+        final int oldDistance = distance[node];
+        distance[node] = minDistance + 1;
+        relabelsSinceGlobalRelabel++;
+        if (distance[node] < n) {
+            labelCount[distance[node]]++;
+        }
+        if (oldDistance < n && --labelCount[oldDistance] == 0 && gapRelabeling) {
+            liftAboveGap(oldDistance);
+        }
+    }
+
+    /**
+     * No node has the distance label of the gap, so nodes above it can't reach the sink anymore.
+     * They are lifted to n + 1 at once, so their excess goes straight back to the source. Nodes with excess stay
+     * in the buckets of their old labels, they get discharged a bit earlier than their new labels would have them.
+     */
+    private void liftAboveGap(int gap) {
+        final int[] firstArc = network.firstArcs();
+        for (int node = 0; node < n; node++) {
+            if (distance[node] > gap && distance[node] < n) {
+                labelCount[distance[node]]--;
+                distance[node] = n + 1;
+                currentArc[node] = firstArc[node];
+            }
+        }
+    }
+
+    private void addToExcess(int amount, int node) {
+        boolean wasActive = isActive(node);
+        excess[node] += amount;
+        if (!wasActive && isActive(node)) {
+            addActiveNode(node);
+        }
+    }
+
+    private boolean isActive(int node) {
+        return excess[node] > 0 && node != network.getSource() && node != network.getSink();
+    }
+
+    private void addActiveNode(int node) {
+        int d = distance[node];
+        nextActive[node] = bucketFirst[d];
+        bucketFirst[d] = node;
+        highestActiveDistance = Math.max(highestActiveDistance, d);
+    }
+
+    public CompactFlowNetwork getNetwork() {
+        return network;
+    }
+
+    int[] distances() {
+        return distance;
+    }
+
+    int[] excesses() {
+        return excess;
+    }
+
+    public int getFlowAmount() {
+        return excess[network.getSink()];
+    }
+
+    public int getNodeDistance(int node) {
+        checkElementIndex(node, n);
+        return distance[node];
+    }
+
+    public int getNodeExcess(int node) {
+        checkElementIndex(node, n);
+        return excess[node];
+    }
+}
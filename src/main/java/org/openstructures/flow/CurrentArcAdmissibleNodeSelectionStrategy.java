@@ -0,0 +1,65 @@
+package org.openstructures.flow;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Every node keeps a pointer to its current arc, the arc that is the next candidate for pushing flow.
+ * The search for an admissible node starts from the current arc and moves the pointer forward past the arcs that are not admissible.
+ * An arc that isn't admissible can't become admissible until its tail is relabeled, so the pointer goes back to the first arc
+ * only when that happens. This way all the pushes from the node between two relabels scan its adjacency list just once.
+ * <p>
+ * Adjacency lists are copied into arrays once and kept across resets, they are copied again only after arcs get added to the network.
+ * <p>
+ * The strategy keeps state of the nodes, so one instance can't be shared by several {@link PushRelabelMaxFlow}s.
+ */
+public class CurrentArcAdmissibleNodeSelectionStrategy implements AdmissibleNodeSelectionStrategy {
+    private final Map<Node, CurrentArc> currentArcs = newHashMap();
+
+    @Override
+    public Optional<Node> getAdmissibleNode(PushRelabelMaxFlow pushRelabelMaxFlow, Node n) {
+        CurrentArc currentArc = currentArcs.get(n);
+        if (currentArc == null || currentArc.arcsVersion != pushRelabelMaxFlow.getArcsVersion()) {
+            currentArc = new CurrentArc(pushRelabelMaxFlow.getAdjacentNodes(n).toArray(new Node[0]), pushRelabelMaxFlow.getArcsVersion());
+            currentArcs.put(n, currentArc);
+        }
+        for (; currentArc.position < currentArc.heads.length; currentArc.position++) {
+            Node head = currentArc.heads[currentArc.position];
+            if (pushRelabelMaxFlow.getArcCapacity(n, head) > 0 && pushRelabelMaxFlow.isArcAdmissible(n, head)) {
+                return Optional.of(head);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void nodeRelabeled(Node n) {
+        CurrentArc currentArc = currentArcs.get(n);
+        if (currentArc != null) {
+            currentArc.position = 0;
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (CurrentArc currentArc : currentArcs.values()) {
+            currentArc.position = 0;
+        }
+    }
+
+    /**
+     * Arc can connect the node to any of its adjacent nodes, since pushing flow along the arc (i,j) creates the reverse arc (j,i).
+     */
+    private static class CurrentArc {
+        private final Node[] heads;
+        private final int arcsVersion; // of the network when the heads were copied
+        private int position;
+
+        private CurrentArc(Node[] heads, int arcsVersion) {
+            this.heads = heads;
+            this.arcsVersion = arcsVersion;
+        }
+    }
+}
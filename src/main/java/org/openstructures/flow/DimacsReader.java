@@ -0,0 +1,204 @@
+package org.openstructures.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.openstructures.flow.ValueNode.node;
+
+/**
+ * Reads max flow problems in the DIMACS format:
+ * <pre>
+ * c comment
+ * p max [number of nodes] [number of arcs]
+ * n [source id] s
+ * n [sink id] t
+ * a [tail id] [head id] [capacity]
+ * </pre>
+ * DIMACS node ids start from 1, node i of the file becomes node i - 1 of the network.
+ * The file is streamed through a byte buffer and numbers are parsed straight from the bytes, so no strings are created per line.
+ * Parallel arcs are merged.
+ */
+public final class DimacsReader {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long lineNumber = 1;
+    private int numberOfNodes = -1, numberOfArcs, source = -1, sink = -1;
+
+    private DimacsReader(FileChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    public static CompactFlowNetwork readCompactFlowNetwork(Path path) throws IOException {
+        checkNotNull(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            DimacsReader reader = new DimacsReader(channel);
+            reader.readHeader();
+            CompactFlowNetwork.Builder builder = new CompactFlowNetwork.Builder(reader.numberOfNodes, reader.source, reader.sink);
+            builder.ensureArcCapacity(reader.numberOfArcs);
+            reader.readArcs((capacity, tail, head) -> builder.addArc(capacity, tail, head));
+            return builder.build();
+        }
+    }
+
+    /**
+     * Nodes of the network are {@link ValueNode}s holding the ids, same as {@link CompactFlowNetwork#getNode(int)} returns
+     */
+    public static FlowNetwork readFlowNetwork(Path path) throws IOException {
+        checkNotNull(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            DimacsReader reader = new DimacsReader(channel);
+            reader.readHeader();
+            Node[] nodes = new Node[reader.numberOfNodes];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = node(i);
+            }
+            FlowNetwork flowNetwork = new FlowNetwork(nodes[reader.source], nodes[reader.sink]);
+            reader.readArcs((capacity, tail, head) -> {
+                if (capacity > 0) {
+                    flowNetwork.increaseArcCapacity(capacity, nodes[tail], nodes[head]);
+                }
+            });
+            return flowNetwork;
+        }
+    }
+
+    private interface ArcConsumer {
+        void accept(int capacity, int tail, int head);
+    }
+
+    /**
+     * Reads lines up to the first arc, that is the problem line and the source and sink lines
+     */
+    private void readHeader() throws IOException {
+        while (true) {
+            int type = skipBlanks();
+            if (type == -1) {
+                break;
+            } else if (type == 'a') {
+                buffer.position(buffer.position() - 1);
+                break;
+            } else if (type == 'p') {
+                expectWord("max");
+                numberOfNodes = Math.toIntExact(readNumber());
+                numberOfArcs = Math.toIntExact(readNumber());
+                check(numberOfNodes >= 2, "Network must have at least source and sink");
+            } else if (type == 'n') {
+                check(numberOfNodes > 0, "Problem line must come before node lines");
+                int node = readNodeId();
+                int designation = skipBlanks();
+                if (designation == 's') {
+                    source = node;
+                } else if (designation == 't') {
+                    sink = node;
+                } else {
+                    throw error("Node must be either s or t");
+                }
+            } else if (type != 'c' && type != '\n') {
+                throw error("Unknown line type " + (char) type);
+            }
+            skipLine(type);
+        }
+        check(numberOfNodes > 0, "Problem line is missing");
+        check(source >= 0 && sink >= 0, "Source or sink is missing");
+        check(source != sink, "Source and sink must be different nodes");
+    }
+
+    private void readArcs(ArcConsumer arcs) throws IOException {
+        int type;
+        while ((type = skipBlanks()) != -1) {
+            if (type == 'a') {
+                int tail = readNodeId();
+                int head = readNodeId();
+                long capacity = readNumber();
+                check(capacity <= Integer.MAX_VALUE, "Capacity is too large");
+                check(tail != head, "Arc can't start and end at the same node");
+                arcs.accept((int) capacity, tail, head);
+            } else if (type != 'c' && type != '\n') {
+                throw error("Only arcs and comments can follow the arcs");
+            }
+            skipLine(type);
+        }
+    }
+
+    private int readNodeId() throws IOException {
+        long id = readNumber();
+        check(id >= 1 && id <= numberOfNodes, "Node id " + id + " is out of range");
+        return (int) id - 1;
+    }
+
+    private long readNumber() throws IOException {
+        int b = skipBlanks();
+        check(b >= '0' && b <= '9', "Number expected");
+        long number = 0;
+        while (b >= '0' && b <= '9') {
+            number = Math.addExact(Math.multiplyExact(number, 10), b - '0');
+            b = read();
+        }
+        if (b != -1) {
+            buffer.position(buffer.position() - 1);
+        }
+        return number;
+    }
+
+    private void expectWord(String word) throws IOException {
+        int b = skipBlanks();
+        for (int i = 0; i < word.length(); i++) {
+            check(b == word.charAt(i), "Only max flow problems are supported");
+            b = read();
+        }
+        if (b != -1) {
+            buffer.position(buffer.position() - 1);
+        }
+    }
+
+    /**
+     * @return the first byte that is not a space, a tab or a carriage return, or -1 at the end of the file
+     */
+    private int skipBlanks() throws IOException {
+        int b;
+        do {
+            b = read();
+        } while (b == ' ' || b == '\t' || b == '\r');
+        return b;
+    }
+
+    private void skipLine(int lastByte) throws IOException {
+        int b = lastByte;
+        while (b != '\n' && b != -1) {
+            b = read();
+        }
+        lineNumber++;
+    }
+
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int bytesRead;
+            do {
+                bytesRead = channel.read(buffer);
+            } while (bytesRead == 0);
+            buffer.flip();
+            if (bytesRead < 0) {
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private void check(boolean condition, String message) throws IOException {
+        if (!condition) {
+            throw error(message);
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("Line " + lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,139 @@
+package org.openstructures.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes max flow problems in the DIMACS format, see {@link DimacsReader}.
+ * Node i of the network is written as node i + 1. Numbers are formatted straight into a byte buffer.
+ */
+public final class DimacsWriter {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+
+    private DimacsWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes arcs with the capacities they had when the network was built
+     */
+    public static void write(CompactFlowNetwork network, Path path) throws IOException {
+        write(network, path, false);
+    }
+
+    /**
+     * Writes arcs with positive residual capacities
+     */
+    public static void writeResidualGraph(CompactFlowNetwork network, Path path) throws IOException {
+        write(network, path, true);
+    }
+
+    /**
+     * Writes arcs with the current capacities of the flow network, so a network the algorithm has run on gets written as
+     * the residual graph. Nodes are numbered in no particular order.
+     *
+     * @throws IllegalArgumentException if the network has several sources or sinks, the format allows only one of each
+     */
+    public static void write(FlowNetwork flowNetwork, Path path) throws IOException {
+        checkNotNull(flowNetwork);
+        flowNetwork.checkSingleSourceAndSink("DIMACS format");
+        write(CompactFlowNetwork.of(flowNetwork), path, false);
+    }
+
+    private static void write(CompactFlowNetwork network, Path path, boolean residual) throws IOException {
+        checkNotNull(network);
+        checkNotNull(path);
+        int numberOfArcs = 0;
+        for (int arc = 0; arc < network.getNumberOfArcs(); arc++) {
+            if (capacity(network, arc, residual) > 0) {
+                numberOfArcs++;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DimacsWriter writer = new DimacsWriter(channel);
+            writer.writeProblemLine(network.getNumberOfNodes(), numberOfArcs);
+            writer.writeNodeLine(network.getSource() + 1, 's');
+            writer.writeNodeLine(network.getSink() + 1, 't');
+            for (int tail = 0; tail < network.getNumberOfNodes(); tail++) {
+                for (int arc = network.getFirstArc(tail); arc < network.getLastArc(tail); arc++) {
+                    int capacity = capacity(network, arc, residual);
+                    if (capacity > 0) {
+                        writer.writeArc(tail + 1, network.getArcHead(arc) + 1, capacity);
+                    }
+                }
+            }
+            writer.flush();
+        }
+    }
+
+    private static int capacity(CompactFlowNetwork network, int arc, boolean residual) {
+        return residual ? network.getResidualCapacity(arc) : network.getArcCapacity(arc);
+    }
+
+    private void writeProblemLine(int numberOfNodes, int numberOfArcs) throws IOException {
+        for (byte b : "p max ".getBytes(StandardCharsets.US_ASCII)) {
+            put(b);
+        }
+        putNumber(numberOfNodes);
+        put((byte) ' ');
+        putNumber(numberOfArcs);
+        put((byte) '\n');
+    }
+
+    private void writeNodeLine(int id, char designation) throws IOException {
+        put((byte) 'n');
+        put((byte) ' ');
+        putNumber(id);
+        put((byte) ' ');
+        put((byte) designation);
+        put((byte) '\n');
+    }
+
+    private void writeArc(int tail, int head, int capacity) throws IOException {
+        put((byte) 'a');
+        put((byte) ' ');
+        putNumber(tail);
+        put((byte) ' ');
+        putNumber(head);
+        put((byte) ' ');
+        putNumber(capacity);
+        put((byte) '\n');
+    }
+
+    private void putNumber(long number) throws IOException {
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        while (length > 0) {
+            put(digits[--length]);
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(b);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,168 @@
+package org.openstructures.flow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Dinic's algorithm. Every phase builds the level graph with breadth first search from the source and then finds
+ * a blocking flow in it with depth first search. There are at most n phases, and on networks with unit capacities
+ * it runs in O(min(n^(2/3), m^(1/2)) * m) time, which is often faster than push relabel on sparse networks.
+ * <p>
+ * The search works on a {@link CompactFlowNetwork} copy of the network and keeps the path on an explicit stack,
+ * so long paths don't overflow the call stack. Nodes that turn out to be dead ends are pruned from the level graph
+ * and current arc pointers make sure no arc is looked at twice within a phase.
+ * Once the flow is found the residual capacities are written back to the flow network.
+ */
+public class DinicMaxFlow implements MaxFlowSolver {
+    private final FlowNetwork flowNetwork;
+    private CompactFlowNetwork network;
+    private int[] level;
+    private int[] currentArc;
+    private int[] queue;
+    private int[] path;
+    private int flowAmount;
+
+    /**
+     * @throws IllegalArgumentException if the network has several sources or sinks
+     */
+    public DinicMaxFlow(FlowNetwork flowNetwork) {
+        this.flowNetwork = requireNonNull(flowNetwork);
+        flowNetwork.checkSingleSourceAndSink("Dinic's algorithm");
+    }
+
+    @Override
+    public void solve() {
+        network = CompactFlowNetwork.of(flowNetwork);
+        int n = network.getNumberOfNodes();
+        level = new int[n];
+        currentArc = new int[n];
+        queue = new int[n];
+        path = new int[n];
+        flowAmount = 0;
+        while (buildLevelGraph()) {
+            flowAmount = Math.addExact(flowAmount, findBlockingFlow());
+        }
+        network.copyResidualCapacitiesTo(flowNetwork);
+    }
+
+    /**
+     * Breadth first search from the source over residual arcs.
+     *
+     * @return true if the sink can be reached
+     */
+    private boolean buildLevelGraph() {
+        final int s = network.getSource();
+        final int t = network.getSink();
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] residual = network.residualCapacities();
+        Arrays.fill(level, -1);
+        System.arraycopy(firstArc, 0, currentArc, 0, currentArc.length);
+        level[s] = 0;
+        int queueHead = 0, queueTail = 0;
+        queue[queueTail++] = s;
+        while (queueHead < queueTail && level[t] < 0) {
+            int node = queue[queueHead++];
+            for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                int head = heads[arc];
+                if (level[head] < 0 && residual[arc] > 0) {
+                    level[head] = level[node] + 1;
+                    queue[queueTail++] = head;
+                }
+            }
+        }
+        return level[t] >= 0;
+    }
+
+    /**
+     * Advances along arcs of the level graph until it gets to the sink, then augments along the path and retreats
+     * to the tail of the first saturated arc. A node without arcs to go further is a dead end: it's removed
+     * from the level graph and the search retreats by one arc.
+     */
+    private int findBlockingFlow() {
+        final int s = network.getSource();
+        final int t = network.getSink();
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        int blockingFlow = 0;
+        int pathLength = 0;
+        int node = s;
+        while (true) {
+            if (node == t) {
+                int amount = Integer.MAX_VALUE;
+                for (int i = 0; i < pathLength; i++) {
+                    amount = Math.min(amount, residual[path[i]]);
+                }
+                int firstSaturated = -1;
+                for (int i = 0; i < pathLength; i++) {
+                    int arc = path[i];
+                    residual[arc] -= amount;
+                    residual[reverse[arc]] += amount;
+                    if (residual[arc] == 0 && firstSaturated < 0) {
+                        firstSaturated = i;
+                    }
+                }
+                blockingFlow = Math.addExact(blockingFlow, amount);
+                pathLength = firstSaturated;
+                node = pathLength == 0 ? s : heads[path[pathLength - 1]];
+                continue;
+            }
+            int arc = currentArc[node];
+            final int nextLevel = level[node] + 1;
+            while (arc < firstArc[node + 1] && (residual[arc] == 0 || level[heads[arc]] != nextLevel)) {
+                arc++;
+            }
+            currentArc[node] = arc;
+            if (arc < firstArc[node + 1]) {
+                path[pathLength++] = arc;
+                node = heads[arc];
+            } else if (node == s) {
+                return blockingFlow;
+            } else {
+                level[node] = -1;
+                pathLength--;
+                node = pathLength == 0 ? s : heads[path[pathLength - 1]];
+                currentArc[node]++;
+            }
+        }
+    }
+
+    @Override
+    public int getFlowAmount() {
+        return flowAmount;
+    }
+
+    @Override
+    public Set<Node> getMinCutSourceSide() {
+        checkSolved();
+        BitSet sourceSide = network.getNodesNotReachingSink();
+        return sourceSide.stream().mapToObj(network::getNode).collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public int getArcFlow(Node tail, Node head) {
+        checkNotNull(tail);
+        checkNotNull(head);
+        checkSolved();
+        return network.getArcFlow(tail, head);
+    }
+
+    @Override
+    public Stream<ArcFlow> getArcFlows() {
+        checkSolved();
+        return network.getArcFlows();
+    }
+
+    private void checkSolved() {
+        checkState(network != null, "Max flow has not been found yet");
+    }
+}
@@ -0,0 +1,126 @@
+package org.openstructures.flow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+
+/**
+ * Excess scaling of Ahuja and Orlin. Nodes with large excess, more than half of the scale, go first, the one with
+ * the lowest distance label among them, and no push can make the excess of a node exceed the scale.
+ * So every push either saturates the arc or moves at least half of the scale, and the flow moves in big amounts.
+ * Once no node has large excess the scale is halved, until it gets to 1 and every active node has large excess.
+ * <p>
+ * Nodes with large excess are kept in buckets by their distance labels. Nodes with small excess are only looked at
+ * when the scale is halved, or when they get more excess.
+ */
+class ExcessScalingActiveNodes implements ActiveNodeSelectionStrategy {
+    private final List<Deque<Node>> largeExcessBuckets = new ArrayList<>();
+    private final Map<Node, Integer> smallExcessDistances = newLinkedHashMap();
+    private final Map<Node, Integer> smallExcesses = newHashMap();
+    private int lowestLargeExcessDistance = Integer.MAX_VALUE; // no bucket below it has nodes
+    private long scale = 1;
+
+    @Override
+    public void add(Node node, int distance, int excess) {
+        checkNotNull(node);
+        checkArgument(distance >= 0, "Active node %s must have a distance label", node);
+        checkArgument(excess > 0, "Active node %s must have excess", node);
+        raiseScale(excess);
+        if (isLarge(excess)) {
+            addLargeExcessNode(node, distance);
+        } else {
+            smallExcessDistances.put(node, distance);
+            smallExcesses.put(node, excess);
+        }
+    }
+
+    /**
+     * Pushes never take a node above the scale, but the source floods its successors without any limit,
+     * and with several sources the same node can get flooded more than once
+     */
+    @Override
+    public void excessIncreased(Node node, int excess) {
+        raiseScale(excess);
+        Integer distance = smallExcessDistances.get(node);
+        if (distance != null) {
+            if (isLarge(excess)) {
+                smallExcessDistances.remove(node);
+                smallExcesses.remove(node);
+                addLargeExcessNode(node, distance);
+            } else {
+                smallExcesses.put(node, excess);
+            }
+        }
+    }
+
+    /**
+     * Excess above the scale would leave no room for pushes into the node
+     */
+    private void raiseScale(int excess) {
+        if (excess > scale) {
+            scale = Long.highestOneBit(excess - 1L) << 1;
+        }
+    }
+
+    private boolean isLarge(int excess) {
+        return 2L * excess > scale;
+    }
+
+    private void addLargeExcessNode(Node node, int distance) {
+        while (largeExcessBuckets.size() <= distance) {
+            largeExcessBuckets.add(new ArrayDeque<>());
+        }
+        largeExcessBuckets.get(distance).add(node);
+        lowestLargeExcessDistance = Math.min(lowestLargeExcessDistance, distance);
+    }
+
+    @Override
+    public Node poll() {
+        while (true) {
+            for (; lowestLargeExcessDistance < largeExcessBuckets.size(); lowestLargeExcessDistance++) {
+                Deque<Node> bucket = largeExcessBuckets.get(lowestLargeExcessDistance);
+                if (!bucket.isEmpty()) {
+                    return bucket.poll();
+                }
+            }
+            if (smallExcessDistances.isEmpty()) {
+                return null;
+            }
+            scale /= 2;
+            Iterator<Map.Entry<Node, Integer>> iterator = smallExcessDistances.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Node, Integer> smallExcessNode = iterator.next();
+                if (isLarge(smallExcesses.get(smallExcessNode.getKey()))) {
+                    iterator.remove();
+                    smallExcesses.remove(smallExcessNode.getKey());
+                    addLargeExcessNode(smallExcessNode.getKey(), smallExcessNode.getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        largeExcessBuckets.forEach(Deque::clear);
+        smallExcessDistances.clear();
+        smallExcesses.clear();
+        lowestLargeExcessDistance = Integer.MAX_VALUE;
+        scale = 1;
+    }
+
+    /**
+     * What is left to the scale
+     */
+    @Override
+    public int getPushLimit(int excess) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, scale - excess));
+    }
+}
@@ -0,0 +1,29 @@
+package org.openstructures.flow;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Active nodes in a queue, in the order they became active. A relabeled node goes to the back of the queue.
+ */
+class FifoActiveNodes implements ActiveNodeSelectionStrategy {
+    private final Queue<Node> queue = new ArrayDeque<>();
+
+    @Override
+    public void add(Node node, int distance, int excess) {
+        checkNotNull(node);
+        queue.add(node);
+    }
+
+    @Override
+    public Node poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public void clear() {
+        queue.clear();
+    }
+}
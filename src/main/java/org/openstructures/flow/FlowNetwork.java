@@ -1,36 +1,73 @@
 package org.openstructures.flow;
 
 import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Table;
 import org.open_structures.memento.Memento;
 import org.open_structures.memento.Restorable;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Maps.immutableEntry;
+import static com.google.common.collect.Sets.intersection;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Objects.requireNonNull;
 
 /**
  * A flow network is a directed graph where each edge has a capacity and can receive a flow.
  * The amount of flow on an edge cannot exceed its capacity.
+ * <p>
+ * A network can have several sources and sinks, then the flow goes from any source to any sink.
+ * Only {@link PushRelabelMaxFlow} solves such networks, {@link #getSource()} and {@link #getSink()} fail for them
+ * and the other solvers reject them when they are created.
  */
 public class FlowNetwork implements Restorable<FlowNetwork.State> {
 
-    private final Node source, sink;
+    private final Set<Node> sources, sinks;
 
     private final Table<Node, Node, Integer> capacitiesTable = HashBasedTable.create();
 
+    /**
+     * Column views of the hash based table have to scan all of its rows, so predecessors are indexed separately
+     */
+    private final SetMultimap<Node, Node> predecessors = HashMultimap.create();
+
+    private final UndoLog<Map.Entry<Node, Node>, Integer> capacitiesLog = new UndoLog<>();
+
+    /**
+     * Grows whenever an arc is added, so adjacency lists copied by the algorithms can tell they are out of date
+     */
+    private int arcsVersion;
+
     public FlowNetwork(Node source, Node sink) {
-        this.source = requireNonNull(source);
-        this.sink = requireNonNull(sink);
+        this(ImmutableSet.of(requireNonNull(source)), ImmutableSet.of(requireNonNull(sink)));
+    }
+
+    /**
+     * Network with several sources and sinks, which is the same as a network with a single super source
+     * connected to every source and a single super sink every sink is connected to, with arcs of unlimited capacity,
+     * but without the extra nodes and arcs.
+     */
+    public FlowNetwork(Set<Node> sources, Set<Node> sinks) {
+        checkNotNull(sources);
+        checkNotNull(sinks);
+        checkArgument(!sources.isEmpty(), "Network must have a source");
+        checkArgument(!sinks.isEmpty(), "Network must have a sink");
+        this.sources = ImmutableSet.copyOf(sources);
+        this.sinks = ImmutableSet.copyOf(sinks);
+        checkArgument(intersection(this.sources, this.sinks).isEmpty(), "Node can't be both a source and a sink");
     }
 
     public Set<Node> getPredecessors(Node head) {
         checkNotNull(head);
-        return capacitiesTable.column(head).keySet();
+        return Collections.unmodifiableSet(predecessors.get(head));
     }
 
     public Set<Node> getSuccessors(Node tail) {
@@ -49,22 +86,38 @@ public class FlowNetwork implements Restorable<FlowNetwork.State> {
         checkNotNull(tail);
         checkNotNull(head);
         checkArgument(!tail.equals(head));
+        if (capacitiesLog.isRecording()) {
+            capacitiesLog.recordChange(immutableEntry(tail, head), getArcCapacity(tail, head));
+        }
         if (capacity == 0) {
             if (capacitiesTable.contains(tail, head)) {
                 capacitiesTable.remove(tail, head);
+                predecessors.remove(head, tail);
             }
-        } else {
-            capacitiesTable.put(tail, head, capacity);
+        } else if (capacitiesTable.put(tail, head, capacity) == null) {
+            predecessors.put(head, tail);
+            arcsVersion++;
         }
     }
 
-    public int getNumberOfNodes() {
+    int getArcsVersion() {
+        return arcsVersion;
+    }
+
+    /**
+     * All nodes of this network, that is the source, the sink and every node that is a tail or a head of some arc.
+     */
+    public Set<Node> getNodes() {
         Set<Node> allNodes = newHashSet();
         allNodes.addAll(capacitiesTable.rowKeySet());
         allNodes.addAll(capacitiesTable.columnKeySet());
-        allNodes.add(source);
-        allNodes.add(sink);
-        return allNodes.size();
+        allNodes.addAll(sources);
+        allNodes.addAll(sinks);
+        return allNodes;
+    }
+
+    public int getNumberOfNodes() {
+        return getNodes().size();
     }
 
     public void increaseArcCapacity(int capacityToAdd, Node tail, Node head) {
@@ -76,34 +129,97 @@ public class FlowNetwork implements Restorable<FlowNetwork.State> {
         setArcCapacity(existingCapacity + capacityToAdd, tail, head);
     }
 
+    /**
+     * @throws IllegalStateException if the network has several sinks
+     */
     public Node getSink() {
-        return sink;
+        checkState(sinks.size() == 1, "Network has %s sinks", sinks.size());
+        return sinks.iterator().next();
     }
 
+    /**
+     * @throws IllegalStateException if the network has several sources
+     */
     public Node getSource() {
-        return source;
+        checkState(sources.size() == 1, "Network has %s sources", sources.size());
+        return sources.iterator().next();
+    }
+
+    public boolean hasSingleSource() {
+        return sources.size() == 1;
     }
 
+    public boolean hasSingleSink() {
+        return sinks.size() == 1;
+    }
+
+    /**
+     * For algorithms that work with a single source and a single sink only
+     *
+     * @throws IllegalArgumentException if the network has several sources or sinks
+     */
+    void checkSingleSourceAndSink(String algorithm) {
+        checkArgument(hasSingleSource() && hasSingleSink(),
+                "%s needs a network with a single source and a single sink, but it has %s sources and %s sinks",
+                algorithm, sources.size(), sinks.size());
+    }
+
+    public Set<Node> getSinks() {
+        return sinks;
+    }
+
+    public Set<Node> getSources() {
+        return sources;
+    }
+
+    public boolean isSource(Node node) {
+        return sources.contains(node);
+    }
+
+    public boolean isSink(Node node) {
+        return sinks.contains(node);
+    }
+
+    /**
+     * Taking the state is O(1), changes of arc capacities are recorded from then on.
+     * Restoring takes time proportional to the number of arcs changed since the state was taken.
+     * Changes are recorded only while some state can still be restored, see {@link State#release()}.
+     */
     @Override
     public State getState() {
-        return new State(this, ImmutableTable.copyOf(capacitiesTable));
+        return new State(this, capacitiesLog.checkpoint());
     }
 
+    /**
+     * Restoring a state doesn't keep the changes made after it, so states taken after the restored one can't be restored anymore.
+     * The restored state itself can be restored again.
+     *
+     * @throws IllegalArgumentException if the state belongs to another network, has been released
+     * or was taken after a state that has been restored since
+     */
     @Override
     public void restore(State state) {
         checkNotNull(state);
         checkArgument(this.equals(state.originFlowNetwork));
-        capacitiesTable.clear();
-        capacitiesTable.putAll(state.capacitiesTable);
+        capacitiesLog.rollback(state.checkpoint, (arc, capacity) -> setArcCapacity(capacity, arc.getKey(), arc.getValue()));
     }
 
     public static class State implements Memento {
         private final FlowNetwork originFlowNetwork;
-        private final ImmutableTable<Node, Node, Integer> capacitiesTable;
+        private final UndoLog.Checkpoint checkpoint;
 
-        private State(FlowNetwork originFlowNetwork, ImmutableTable<Node, Node, Integer> capacitiesTable) {
+        private State(FlowNetwork originFlowNetwork, UndoLog.Checkpoint checkpoint) {
             this.originFlowNetwork = requireNonNull(originFlowNetwork);
-            this.capacitiesTable = requireNonNull(capacitiesTable);
+            this.checkpoint = requireNonNull(checkpoint);
+        }
+
+        /**
+         * The state can't be restored anymore, and the network stops recording changes for it.
+         * States that are not referenced anymore get released when they are garbage collected, releasing them explicitly
+         * stops the recording right away.
+         */
+        public void release() {
+            originFlowNetwork.capacitiesLog.release(checkpoint);
         }
     }
 }
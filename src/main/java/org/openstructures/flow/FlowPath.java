@@ -0,0 +1,43 @@
+package org.openstructures.flow;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Path or cycle that carries the same amount of flow along all of its arcs.
+ * Any flow can be decomposed into paths from the source to the sink and cycles.
+ */
+public class FlowPath {
+    private final ImmutableList<Node> nodes;
+    private final int flow;
+
+    FlowPath(List<Node> nodes, int flow) {
+        checkArgument(nodes.size() >= 2, "Path must have at least one arc");
+        checkArgument(flow > 0, "Flow must be greater than 0");
+        this.nodes = ImmutableList.copyOf(nodes);
+        this.flow = flow;
+    }
+
+    /**
+     * Nodes in the order the flow goes through them. The first and the last nodes of a cycle are the same.
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public int getFlow() {
+        return flow;
+    }
+
+    public boolean isCycle() {
+        return nodes.get(0).equals(nodes.get(nodes.size() - 1));
+    }
+
+    @Override
+    public String toString() {
+        return nodes + ": " + flow;
+    }
+}
@@ -0,0 +1,205 @@
+package org.openstructures.flow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Gomory-Hu cut tree of an undirected network, built with Gusfield's algorithm from n - 1 minimum cuts.
+ * The minimum cut value between any two nodes is the smallest cut value on the tree path between them,
+ * so once the tree is built every pair is answered in time proportional to the length of the path.
+ * <p>
+ * Undirected edges are arcs of the same capacity in both directions, the source and the sink of the network don't matter.
+ * Minimum cuts are found with {@link CompactPushRelabelMaxFlow} on copies of the same compact network.
+ * <p>
+ * Gusfield's algorithm picks the node pair of every cut according to the cuts before it. The cuts of a window of
+ * consecutive nodes are found in parallel with the pairs known at the start of the window, and a cut is found again
+ * only if the cuts before it in the window have changed its pair.
+ * The flow network is not modified.
+ */
+public class GomoryHuTree {
+    private static final int NONE = -1;
+
+    private final CompactFlowNetwork network;
+    private final Executor executor;
+    private final int parallelism;
+    private final Queue<PushRelabelWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+    private final int[] parent;
+    private final int[] cutValue; // value of the minimum cut between the node and its parent
+    private int[] depth;
+
+    /**
+     * Finds the cuts in the common fork join pool
+     */
+    public GomoryHuTree(FlowNetwork flowNetwork) {
+        this(flowNetwork, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param parallelism number of cuts found at the same time
+     */
+    public GomoryHuTree(FlowNetwork flowNetwork, Executor executor, int parallelism) {
+        checkNotNull(flowNetwork);
+        checkArgument(parallelism > 0, "Parallelism must be greater than 0");
+        for (Node tail : flowNetwork.getNodes()) {
+            for (Node head : flowNetwork.getSuccessors(tail)) {
+                checkArgument(flowNetwork.getArcCapacity(tail, head) == flowNetwork.getArcCapacity(head, tail),
+                        "Network must be undirected, but arcs (%s, %s) and (%s, %s) have different capacities", tail, head, head, tail);
+            }
+        }
+        // terminals of the compact network are replaced for every cut, so the network can have any number of them
+        this.network = CompactFlowNetwork.of(flowNetwork, flowNetwork.getSources().iterator().next(), flowNetwork.getSinks().iterator().next());
+        this.executor = requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.parent = new int[network.getNumberOfNodes()];
+        this.cutValue = new int[network.getNumberOfNodes()];
+    }
+
+    public void build() {
+        final int n = network.getNumberOfNodes();
+        Arrays.fill(parent, 0);
+        parent[0] = NONE;
+        Arrays.fill(cutValue, 0);
+        for (int windowStart = 1; windowStart < n; windowStart += parallelism) {
+            final int windowEnd = Math.min(n, windowStart + parallelism);
+            List<CompletableFuture<Cut>> cuts = newArrayList();
+            for (int s = windowStart; s < windowEnd; s++) {
+                final int source = s, sink = parent[s];
+                cuts.add(CompletableFuture.supplyAsync(() -> findMinCut(source, sink), executor));
+            }
+            for (int s = windowStart; s < windowEnd; s++) {
+                Cut cut = await(cuts.get(s - windowStart));
+                addCut(cut.sink == parent[s] ? cut : findMinCut(s, parent[s]));
+            }
+        }
+        depth = new int[n];
+        Arrays.fill(depth, NONE);
+        depth[0] = 0;
+        int[] path = new int[n];
+        for (int node = 1; node < n; node++) {
+            int pathLength = 0;
+            for (int ancestor = node; depth[ancestor] == NONE; ancestor = parent[ancestor]) {
+                path[pathLength++] = ancestor;
+            }
+            for (int i = pathLength - 1; i >= 0; i--) {
+                depth[path[i]] = depth[parent[path[i]]] + 1;
+            }
+        }
+    }
+
+    private Cut findMinCut(int source, int sink) {
+        PushRelabelWorkspace workspace = workspaces.poll();
+        if (workspace == null) {
+            workspace = new PushRelabelWorkspace(network.getNumberOfNodes());
+        }
+        try {
+            CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network.withTerminals(source, sink), workspace);
+            flow.findMinCut();
+            return new Cut(source, sink, flow.getFlowAmount(), flow.getMinCutSourceSide());
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+    /**
+     * Nodes on the source side that hung from the sink now hang from the source. If the sink's parent is on the source side too,
+     * the source takes the sink's place in the tree.
+     */
+    private void addCut(Cut cut) {
+        final int s = cut.source, t = cut.sink;
+        cutValue[s] = cut.value;
+        for (int node = cut.sourceSide.nextSetBit(0); node >= 0; node = cut.sourceSide.nextSetBit(node + 1)) {
+            if (node != s && parent[node] == t) {
+                parent[node] = s;
+            }
+        }
+        if (parent[t] != NONE && cut.sourceSide.get(parent[t])) {
+            parent[s] = parent[t];
+            parent[t] = s;
+            cutValue[s] = cutValue[t];
+            cutValue[t] = cut.value;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Value of the minimum cut between two different nodes, that is the maximum flow amount from one to the other
+     */
+    public int getMinCutValue(Node node1, Node node2) {
+        checkBuilt();
+        int u = network.getNodeId(node1), v = network.getNodeId(node2);
+        checkArgument(u != v, "Nodes must be different");
+        int minCutValue = Integer.MAX_VALUE;
+        while (u != v) {
+            if (depth[u] < depth[v]) {
+                int deeper = v;
+                v = u;
+                u = deeper;
+            }
+            minCutValue = Math.min(minCutValue, cutValue[u]);
+            u = parent[u];
+        }
+        return minCutValue;
+    }
+
+    /**
+     * Parent of the node in the tree, or null for the root
+     */
+    public Node getParent(Node node) {
+        checkBuilt();
+        int id = network.getNodeId(node);
+        return parent[id] != NONE ? network.getNode(parent[id]) : null;
+    }
+
+    /**
+     * Value of the minimum cut between the node and its parent in the tree. Removing the tree edge between them splits
+     * the nodes into the two sides of such cut.
+     */
+    public int getParentCutValue(Node node) {
+        checkBuilt();
+        int id = network.getNodeId(node);
+        checkArgument(parent[id] != NONE, "Root of the tree has no parent");
+        return cutValue[id];
+    }
+
+    private void checkBuilt() {
+        checkState(depth != null, "Tree has not been built yet");
+    }
+
+    private static class Cut {
+        final int source, sink, value;
+        final BitSet sourceSide;
+
+        Cut(int source, int sink, int value, BitSet sourceSide) {
+            this.source = source;
+            this.sink = sink;
+            this.value = value;
+            this.sourceSide = sourceSide;
+        }
+    }
+}
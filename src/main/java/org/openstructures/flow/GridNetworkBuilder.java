@@ -0,0 +1,162 @@
+package org.openstructures.flow;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Builds {@link CompactFlowNetwork} for a 2D or 3D grid of pixels, as used for image segmentation.
+ * Every pixel is connected to its neighbors along each dimension and may have arcs from the source and to the sink.
+ * Neighbors are found from pixel coordinates, so only capacities are stored and the compressed sparse rows
+ * are filled in directly, without collecting and sorting arcs.
+ * <p>
+ * Pixel (x, y, z) gets id x + width * (y + height * z), the source gets id width * height * depth and the sink the one after it.
+ */
+public class GridNetworkBuilder {
+    private final int[] size;
+    private final int numberOfPixels;
+    private final int[] sourceCapacity;
+    private final int[] sinkCapacity;
+    private final int[][] forwardCapacity;  // from the pixel to the next one along the dimension
+    private final int[][] backwardCapacity; // from the next pixel along the dimension back to the pixel
+
+    public GridNetworkBuilder(int width, int height) {
+        this(width, height, 1);
+    }
+
+    public GridNetworkBuilder(int width, int height, int depth) {
+        checkArgument(width > 0 && height > 0 && depth > 0, "Grid size must be positive");
+        this.size = new int[]{width, height, depth};
+        this.numberOfPixels = Math.multiplyExact(Math.multiplyExact(width, height), depth);
+        checkArgument(numberOfPixels <= Integer.MAX_VALUE - 2, "Grid is too large");
+        this.sourceCapacity = new int[numberOfPixels];
+        this.sinkCapacity = new int[numberOfPixels];
+        int numberOfDimensions = depth > 1 ? 3 : 2; // pixels of a 2D grid have no neighbors along z
+        this.forwardCapacity = new int[numberOfDimensions][numberOfPixels];
+        this.backwardCapacity = new int[numberOfDimensions][numberOfPixels];
+    }
+
+    public int getPixel(int x, int y) {
+        return getPixel(x, y, 0);
+    }
+
+    public int getPixel(int x, int y, int z) {
+        checkElementIndex(x, size[0]);
+        checkElementIndex(y, size[1]);
+        checkElementIndex(z, size[2]);
+        return x + size[0] * (y + size[1] * z);
+    }
+
+    public int getSource() {
+        return numberOfPixels;
+    }
+
+    public int getSink() {
+        return numberOfPixels + 1;
+    }
+
+    /**
+     * Sets capacities of the arcs from the source to the pixel and from the pixel to the sink
+     */
+    public GridNetworkBuilder setTerminalCapacities(int pixel, int sourceCapacity, int sinkCapacity) {
+        checkElementIndex(pixel, numberOfPixels);
+        checkArgument(sourceCapacity >= 0 && sinkCapacity >= 0);
+        this.sourceCapacity[pixel] = sourceCapacity;
+        this.sinkCapacity[pixel] = sinkCapacity;
+        return this;
+    }
+
+    /**
+     * Sets capacities of the arcs between the pixel and the next pixel along the dimension
+     *
+     * @param dimension 0 for x, 1 for y and 2 for z
+     */
+    public GridNetworkBuilder setNeighborCapacities(int pixel, int dimension, int forwardCapacity, int backwardCapacity) {
+        checkElementIndex(pixel, numberOfPixels);
+        checkElementIndex(dimension, 3);
+        checkArgument(hasNextPixel(pixel, dimension), "Pixel %s is the last one along dimension %s", pixel, dimension);
+        checkArgument(forwardCapacity >= 0 && backwardCapacity >= 0);
+        this.forwardCapacity[dimension][pixel] = forwardCapacity;
+        this.backwardCapacity[dimension][pixel] = backwardCapacity;
+        return this;
+    }
+
+    /**
+     * Every node only adds pairs of arcs to nodes with higher ids, in the order of ids. Nodes are visited in the order
+     * of ids too, so every row ends up sorted by head: first the arcs added by nodes with lower ids, then its own.
+     */
+    public CompactFlowNetwork build() {
+        final int n = numberOfPixels + 2;
+        final int s = getSource();
+        final int t = getSink();
+        int[] firstArc = new int[n + 1];
+        for (int pixel = 0; pixel < numberOfPixels; pixel++) {
+            for (int dimension = 0; dimension < forwardCapacity.length; dimension++) {
+                if (hasNeighborArcs(pixel, dimension)) {
+                    firstArc[pixel + 1]++;
+                    firstArc[nextPixel(pixel, dimension) + 1]++;
+                }
+            }
+            if (sourceCapacity[pixel] > 0) {
+                firstArc[pixel + 1]++;
+                firstArc[s + 1]++;
+            }
+            if (sinkCapacity[pixel] > 0) {
+                firstArc[pixel + 1]++;
+                firstArc[t + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            firstArc[i + 1] += firstArc[i];
+        }
+        int numberOfArcs = firstArc[n];
+        int[] nextArc = new int[n];
+        System.arraycopy(firstArc, 0, nextArc, 0, n);
+        int[] arcHead = new int[numberOfArcs];
+        int[] reverseArc = new int[numberOfArcs];
+        int[] arcCapacity = new int[numberOfArcs];
+        for (int pixel = 0; pixel < numberOfPixels; pixel++) {
+            for (int dimension = 0; dimension < forwardCapacity.length; dimension++) {
+                if (hasNeighborArcs(pixel, dimension)) {
+                    addArcPair(pixel, nextPixel(pixel, dimension), forwardCapacity[dimension][pixel], backwardCapacity[dimension][pixel],
+                            nextArc, arcHead, reverseArc, arcCapacity);
+                }
+            }
+            if (sourceCapacity[pixel] > 0) {
+                addArcPair(pixel, s, 0, sourceCapacity[pixel], nextArc, arcHead, reverseArc, arcCapacity);
+            }
+            if (sinkCapacity[pixel] > 0) {
+                addArcPair(pixel, t, sinkCapacity[pixel], 0, nextArc, arcHead, reverseArc, arcCapacity);
+            }
+        }
+        return new CompactFlowNetwork(s, t, firstArc, arcHead, reverseArc, arcCapacity, null, null);
+    }
+
+    private static void addArcPair(int lower, int upper, int lowerToUpperCapacity, int upperToLowerCapacity,
+                                   int[] nextArc, int[] arcHead, int[] reverseArc, int[] arcCapacity) {
+        int forward = nextArc[lower]++;
+        int backward = nextArc[upper]++;
+        arcHead[forward] = upper;
+        arcHead[backward] = lower;
+        reverseArc[forward] = backward;
+        reverseArc[backward] = forward;
+        arcCapacity[forward] = lowerToUpperCapacity;
+        arcCapacity[backward] = upperToLowerCapacity;
+    }
+
+    private boolean hasNeighborArcs(int pixel, int dimension) {
+        return forwardCapacity[dimension][pixel] > 0 || backwardCapacity[dimension][pixel] > 0;
+    }
+
+    private boolean hasNextPixel(int pixel, int dimension) {
+        int stride = stride(dimension);
+        return (pixel / stride) % size[dimension] < size[dimension] - 1;
+    }
+
+    private int nextPixel(int pixel, int dimension) {
+        return pixel + stride(dimension);
+    }
+
+    private int stride(int dimension) {
+        return dimension == 0 ? 1 : dimension == 1 ? size[0] : size[0] * size[1];
+    }
+}
@@ -0,0 +1,29 @@
+package org.openstructures.flow;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Algorithm that finds the maximum flow in a {@link FlowNetwork}.
+ * By the time {@link #solve()} returns the network gets transformed into the residual graph of the flow it has found.
+ */
+public interface MaxFlowSolver {
+    void solve();
+
+    int getFlowAmount();
+
+    /**
+     * Nodes that can't reach the sink in the residual graph, that is the source side of the minimum cut.
+     */
+    Set<Node> getMinCutSourceSide();
+
+    /**
+     * Amount of flow sent along the arc (tail, head). If the network has arcs in both directions, only the net flow is counted.
+     */
+    int getArcFlow(Node tail, Node head);
+
+    /**
+     * All arcs that carry flow
+     */
+    Stream<ArcFlow> getArcFlows();
+}
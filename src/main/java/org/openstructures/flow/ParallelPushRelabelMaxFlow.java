@@ -0,0 +1,290 @@
+package org.openstructures.flow;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Push relabel algorithm that discharges many active nodes at the same time, it runs on {@link CompactFlowNetwork}.
+ * The work is done in synchronous rounds, and every round has these steps, each one running in parallel over the active nodes:
+ * <ol>
+ * <li>every active node pushes its excess along admissible arcs, using the distance labels from the start of the round.
+ * An arc can only be admissible in one direction, so every pair of arcs is touched by one node at most and residual capacities
+ * don't need synchronization. Pushed flow is added to the heads with atomic operations and becomes their excess after the round.</li>
+ * <li>nodes that still have excess are relabeled using the labels from the start of the round. Labels only go up,
+ * so the new labels are valid whatever the neighbors get.</li>
+ * <li>new labels and excesses are applied and the next set of active nodes is collected.</li>
+ * </ol>
+ * Global relabeling is done with a parallel breadth first search, level by level.
+ * <p>
+ * Only the first phase of the algorithm is run, see {@link PushRelabelMaxFlow#findMinCut()}, so once it's done
+ * the flow amount and the minimum cut are known, but the residual capacities of the network describe a preflow.
+ * The network must not be used by anything else while the algorithm runs.
+ */
+public class ParallelPushRelabelMaxFlow {
+    private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int SEQUENTIAL_THRESHOLD = 256; // smaller rounds are not worth splitting between threads
+
+    private final CompactFlowNetwork network;
+    private final ForkJoinPool pool;
+    private final int[] distance;
+    private final int[] newDistance;
+    private final int[] excess;
+    private final int[] addedExcess; // flow pushed to the node during the current round
+    private final int[] currentArc;
+    private final int[] roundAdded;  // last round the node was added to the candidates, so it's added once
+    private int[] activeNodes;
+    private int[] candidates;        // nodes that may be active in the next round
+    private int numberOfActiveNodes;
+    private final AtomicInteger numberOfCandidates = new AtomicInteger();
+    private final AtomicInteger relabels = new AtomicInteger();
+    private int round;
+    private double globalRelabelingFrequency = 0.5;
+
+    /**
+     * Uses the common fork join pool
+     */
+    public ParallelPushRelabelMaxFlow(CompactFlowNetwork network) {
+        this(network, ForkJoinPool.commonPool());
+    }
+
+    public ParallelPushRelabelMaxFlow(CompactFlowNetwork network, ForkJoinPool pool) {
+        this.network = requireNonNull(network);
+        this.pool = requireNonNull(pool);
+        int n = network.getNumberOfNodes();
+        this.distance = new int[n];
+        this.newDistance = new int[n];
+        this.excess = new int[n];
+        this.addedExcess = new int[n];
+        this.currentArc = new int[n];
+        this.roundAdded = new int[n];
+        this.activeNodes = new int[n];
+        this.candidates = new int[n];
+    }
+
+    /**
+     * Global relabeling is done after every frequency * n relabels, see {@link PushRelabelMaxFlow#setGlobalRelabelingFrequency(double)}.
+     * Without it the parallel algorithm does a lot of extra rounds, so it can't be turned off. The default is 0.5.
+     */
+    public void setGlobalRelabelingFrequency(double frequency) {
+        checkArgument(frequency > 0, "Frequency must be greater than 0");
+        this.globalRelabelingFrequency = frequency;
+    }
+
+    /**
+     * Finds the maximum flow amount and the minimum cut.
+     */
+    public void findMinCut() {
+        final int n = distance.length;
+        final int s = network.getSource();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        globalRelabel();
+        for (int arc = network.getFirstArc(s); arc < network.getLastArc(s); arc++) {
+            int head = heads[arc];
+            if (residual[arc] > 0 && distance[head] < n) {
+                excess[head] = Math.addExact(excess[head], residual[arc]);
+                residual[reverse[arc]] += residual[arc];
+                residual[arc] = 0;
+            }
+        }
+        collectActiveNodes();
+        while (numberOfActiveNodes > 0) {
+            round++;
+            numberOfCandidates.set(0);
+            forEachActiveNode(this::push);
+            forEachActiveNode(this::relabel);
+            forEachActiveNode(node -> distance[node] = newDistance[node]);
+            int count = numberOfCandidates.get();
+            AtomicInteger numberOfNextActiveNodes = new AtomicInteger();
+            forEach(count, i -> {
+                int node = candidates[i];
+                excess[node] += addedExcess[node];
+                addedExcess[node] = 0;
+                if (isActive(node)) {
+                    activeNodes[numberOfNextActiveNodes.getAndIncrement()] = node;
+                }
+            });
+            numberOfActiveNodes = numberOfNextActiveNodes.get();
+            if (relabels.get() >= globalRelabelingFrequency * n) {
+                globalRelabel();
+                collectActiveNodes();
+            }
+        }
+    }
+
+    /**
+     * Pushes the excess of the node along admissible arcs until it's gone or there are no admissible arcs left.
+     * Only the arcs going down the distance labels are touched, so the node and the heads never work on the same pair of arcs.
+     */
+    private void push(int node) {
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        final int nodeDistance = distance[node];
+        int nodeExcess = excess[node];
+        int arc = currentArc[node];
+        while (nodeExcess > 0 && arc < firstArc[node + 1]) {
+            int head = heads[arc];
+            if (nodeDistance == distance[head] + 1 && residual[arc] > 0) {
+                int amount = Math.min(nodeExcess, residual[arc]);
+                residual[arc] -= amount;
+                residual[reverse[arc]] += amount;
+                nodeExcess -= amount;
+                INT_ARRAY.getAndAdd(addedExcess, head, amount);
+                addCandidate(head);
+            } else {
+                arc++;
+            }
+        }
+        excess[node] = nodeExcess;
+        currentArc[node] = arc;
+        newDistance[node] = nodeDistance;
+    }
+
+    /**
+     * Residual capacities don't change while nodes are relabeled, and neighbors' labels from the start of the round
+     * are never higher than their new labels, so the new label is valid.
+     */
+    private void relabel(int node) {
+        if (excess[node] == 0) {
+            return;
+        }
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] residual = network.residualCapacities();
+        int minDistance = Integer.MAX_VALUE;
+        for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+            if (residual[arc] > 0) {
+                minDistance = Math.min(minDistance, distance[heads[arc]]);
+            }
+        }
+        if (minDistance == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Active node " + network.getNode(node) + " does not have successors.");
+        }
+        newDistance[node] = minDistance + 1;
+        currentArc[node] = firstArc[node];
+        relabels.incrementAndGet();
+        addCandidate(node);
+    }
+
+    private void addCandidate(int node) {
+        int added = (int) INT_ARRAY.getVolatile(roundAdded, node);
+        if (added != round && INT_ARRAY.compareAndSet(roundAdded, node, added, round)) {
+            candidates[numberOfCandidates.getAndIncrement()] = node;
+        }
+    }
+
+    /**
+     * Calculates exact distances to the sink with breadth first search over reverse residual arcs, one level at a time.
+     * Nodes of the same level are processed in parallel and claim their predecessors with compare and set.
+     * Nodes that can't reach the sink get the distance of n.
+     */
+    private void globalRelabel() {
+        final int n = distance.length;
+        final int s = network.getSource();
+        final int t = network.getSink();
+        final int[] firstArc = network.firstArcs();
+        final int[] heads = network.arcHeads();
+        final int[] reverse = network.reverseArcs();
+        final int[] residual = network.residualCapacities();
+        forEach(n, node -> {
+            distance[node] = n;
+            currentArc[node] = firstArc[node];
+        });
+        distance[t] = 0;
+        int[] level = activeNodes;
+        int[] nextLevel = candidates;
+        int levelSize = 1;
+        level[0] = t;
+        AtomicInteger nextLevelSize = new AtomicInteger();
+        while (levelSize > 0) {
+            final int[] currentLevel = level;
+            final int[] next = nextLevel;
+            nextLevelSize.set(0);
+            forEach(levelSize, i -> {
+                int node = currentLevel[i];
+                int predecessorDistance = distance[node] + 1;
+                for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++) {
+                    int tail = heads[arc];
+                    if (tail != s && residual[reverse[arc]] > 0 && (int) INT_ARRAY.getVolatile(distance, tail) == n
+                            && INT_ARRAY.compareAndSet(distance, tail, n, predecessorDistance)) {
+                        next[nextLevelSize.getAndIncrement()] = tail;
+                    }
+                }
+            });
+            levelSize = nextLevelSize.get();
+            level = next;
+            nextLevel = currentLevel;
+        }
+        activeNodes = level;
+        candidates = nextLevel;
+        relabels.set(0);
+    }
+
+    private void collectActiveNodes() {
+        numberOfActiveNodes = 0;
+        for (int node = 0; node < excess.length; node++) {
+            if (isActive(node)) {
+                activeNodes[numberOfActiveNodes++] = node;
+            }
+        }
+    }
+
+    private boolean isActive(int node) {
+        return excess[node] > 0 && distance[node] < distance.length && node != network.getSource() && node != network.getSink();
+    }
+
+    private void forEachActiveNode(IntConsumer action) {
+        final int[] nodes = activeNodes;
+        forEach(numberOfActiveNodes, i -> action.accept(nodes[i]));
+    }
+
+    private void forEach(int count, IntConsumer action) {
+        if (count < SEQUENTIAL_THRESHOLD || pool.getParallelism() == 1) {
+            for (int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(action)).join();
+        }
+    }
+
+    /**
+     * Ids of the nodes that can't reach the sink in the residual graph, that is the source side of the minimum cut.
+     */
+    public BitSet getMinCutSourceSide() {
+        globalRelabel();
+        BitSet sourceSide = new BitSet(distance.length);
+        for (int node = 0; node < distance.length; node++) {
+            if (distance[node] == distance.length) {
+                sourceSide.set(node);
+            }
+        }
+        return sourceSide;
+    }
+
+    public int getFlowAmount() {
+        return excess[network.getSink()];
+    }
+
+    public int getNodeDistance(int node) {
+        checkElementIndex(node, distance.length);
+        return distance[node];
+    }
+
+    public int getNodeExcess(int node) {
+        checkElementIndex(node, excess.length);
+        return excess[node];
+    }
+}
@@ -0,0 +1,206 @@
+package org.openstructures.flow;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Maximum flow of a family of networks that depend on a parameter: capacities of the arcs going out of the source
+ * don't decrease as the parameter grows and capacities of the arcs going into the sink don't increase.
+ * Other arcs don't depend on the parameter.
+ * <p>
+ * As in the algorithm of Gallo, Grigoriadis and Tarjan, the preflow and the distance labels of {@link PushRelabelMaxFlow}
+ * are kept from one parameter value to the next. More capacity from the source is pushed right away, and flow above
+ * the new capacity of an arc into the sink goes back to the arc's tail as excess. Neither makes the labels invalid,
+ * and labels never go down, so solving for a whole sequence of increasing values costs about as much as solving once,
+ * plus reading the capacities.
+ * <p>
+ * Source sides of the minimum cuts are nested: they only grow with the parameter. The values where they change are
+ * the breakpoints of the minimum cut capacity, see {@link #sweep(double...)}.
+ * <p>
+ * The flow network gets modified the same way as by {@link PushRelabelMaxFlow}.
+ */
+public class ParametricMaxFlow {
+    private final FlowNetwork flowNetwork;
+    private final Capacities capacities;
+    private final PushRelabelMaxFlow flow;
+    private final List<Node> nodes;
+    private final Map<Node, Integer> sourceArcCapacities = newHashMap();
+    private final Map<Node, Integer> sinkArcCapacities = newHashMap();
+    private double parameter = Double.NaN;
+
+    /**
+     * Capacities of the arcs from the source and to the sink for the given value of the parameter.
+     * Nodes that don't have such an arc get 0.
+     */
+    public interface Capacities {
+        /**
+         * @return capacity that doesn't decrease as the parameter grows
+         */
+        int getSourceArcCapacity(Node head, double parameter);
+
+        /**
+         * @return capacity that doesn't increase as the parameter grows
+         */
+        int getSinkArcCapacity(Node tail, double parameter);
+    }
+
+    /**
+     * Capacities are asked for every node of the network but the source and the sink, so every node that gets an arc
+     * from the source or to the sink for some value of the parameter must be in the network already.
+     * Capacities of such arcs in the network are replaced with the given ones, the arc from the source to the sink doesn't change.
+     *
+     * @throws IllegalArgumentException if the network has several sources or sinks
+     */
+    public ParametricMaxFlow(FlowNetwork flowNetwork, Capacities capacities) {
+        this.flowNetwork = requireNonNull(flowNetwork);
+        flowNetwork.checkSingleSourceAndSink("Parametric max flow");
+        this.capacities = requireNonNull(capacities);
+        this.flow = new PushRelabelMaxFlow(flowNetwork);
+        this.nodes = newArrayList(flowNetwork.getNodes());
+        nodes.remove(flowNetwork.getSource());
+        nodes.remove(flowNetwork.getSink());
+    }
+
+    /**
+     * Finds the maximum flow, and the minimum cut, for the value of the parameter.
+     * The value can't be smaller than the one of the previous call.
+     *
+     * @return the maximum flow amount
+     */
+    public int solve(double parameter) {
+        checkArgument(!Double.isNaN(parameter), "Parameter must be a number");
+        checkArgument(Double.isNaN(this.parameter) || parameter >= this.parameter,
+                "Parameter can't be smaller than the previous one, which is %s", this.parameter);
+        final Node s = flowNetwork.getSource();
+        final Node t = flowNetwork.getSink();
+        if (Double.isNaN(this.parameter)) {
+            for (Node node : nodes) {
+                int sourceArcCapacity = getSourceArcCapacity(node, parameter);
+                int sinkArcCapacity = getSinkArcCapacity(node, parameter);
+                flowNetwork.setArcCapacity(sourceArcCapacity, s, node);
+                flowNetwork.setArcCapacity(sinkArcCapacity, node, t);
+                sourceArcCapacities.put(node, sourceArcCapacity);
+                sinkArcCapacities.put(node, sinkArcCapacity);
+            }
+            flow.findMinCut();
+        } else {
+            for (Node node : nodes) {
+                int sourceArcCapacity = getSourceArcCapacity(node, parameter);
+                int sinkArcCapacity = getSinkArcCapacity(node, parameter);
+                int sourceArcIncrease = sourceArcCapacity - sourceArcCapacities.get(node);
+                int sinkArcDecrease = sinkArcCapacities.get(node) - sinkArcCapacity;
+                checkState(sourceArcIncrease >= 0, "Capacity of the arc from the source to %s decreased", node);
+                checkState(sinkArcDecrease >= 0, "Capacity of the arc from %s to the sink increased", node);
+                if (sinkArcDecrease > 0) {
+                    flow.decreaseSinkArcCapacity(sinkArcDecrease, node);
+                    sinkArcCapacities.put(node, sinkArcCapacity);
+                }
+                if (sourceArcIncrease > 0) {
+                    flow.increaseSourceArcCapacity(sourceArcIncrease, node);
+                    sourceArcCapacities.put(node, sourceArcCapacity);
+                }
+            }
+            flow.continueFindingMinCut();
+        }
+        this.parameter = parameter;
+        return flow.getFlowAmount();
+    }
+
+    private int getSourceArcCapacity(Node node, double parameter) {
+        int capacity = capacities.getSourceArcCapacity(node, parameter);
+        checkState(capacity >= 0, "Capacity of the arc from the source to %s is negative", node);
+        return capacity;
+    }
+
+    private int getSinkArcCapacity(Node node, double parameter) {
+        int capacity = capacities.getSinkArcCapacity(node, parameter);
+        checkState(capacity >= 0, "Capacity of the arc from %s to the sink is negative", node);
+        return capacity;
+    }
+
+    /**
+     * Solves for every value of the parameter, in increasing order, and keeps the values where the minimum cut changes.
+     * The first value is always kept.
+     *
+     * @return breakpoints of the minimum cut among the given values
+     */
+    public List<Breakpoint> sweep(double... parameters) {
+        checkNotNull(parameters);
+        List<Breakpoint> breakpoints = newArrayList();
+        Set<Node> previousSourceSide = null;
+        for (double value : parameters) {
+            int flowAmount = solve(value);
+            Set<Node> sourceSide = getMinCutSourceSide();
+            if (!sourceSide.equals(previousSourceSide)) {
+                breakpoints.add(new Breakpoint(value, flowAmount, sourceSide));
+                previousSourceSide = sourceSide;
+            }
+        }
+        return breakpoints;
+    }
+
+    public int getFlowAmount() {
+        checkSolved();
+        return flow.getFlowAmount();
+    }
+
+    /**
+     * The largest source side of a minimum cut for the last value of the parameter
+     */
+    public Set<Node> getMinCutSourceSide() {
+        checkSolved();
+        return flow.getMinCutSourceSide();
+    }
+
+    /**
+     * The last value of the parameter solved for
+     */
+    public double getParameter() {
+        checkSolved();
+        return parameter;
+    }
+
+    private void checkSolved() {
+        checkState(!Double.isNaN(parameter), "Max flow has not been found yet");
+    }
+
+    /**
+     * Value of the parameter where the minimum cut changes, with the maximum flow amount and the minimum cut from then on
+     */
+    public static class Breakpoint {
+        private final double parameter;
+        private final int flowAmount;
+        private final Set<Node> minCutSourceSide;
+
+        private Breakpoint(double parameter, int flowAmount, Set<Node> minCutSourceSide) {
+            this.parameter = parameter;
+            this.flowAmount = flowAmount;
+            this.minCutSourceSide = requireNonNull(minCutSourceSide);
+        }
+
+        public double getParameter() {
+            return parameter;
+        }
+
+        public int getFlowAmount() {
+            return flowAmount;
+        }
+
+        public Set<Node> getMinCutSourceSide() {
+            return minCutSourceSide;
+        }
+
+        @Override
+        public String toString() {
+            return "Breakpoint{parameter=" + parameter + ", flowAmount=" + flowAmount + ", minCutSourceSide=" + minCutSourceSide + '}';
+        }
+    }
+}
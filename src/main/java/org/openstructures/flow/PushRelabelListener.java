@@ -0,0 +1,18 @@
+package org.openstructures.flow;
+
+/**
+ * Gets the statistics of every phase {@link PushRelabelMaxFlow} runs, for example to feed them into monitoring.
+ * It's called on the thread that runs the algorithm, so it should be quick.
+ */
+@FunctionalInterface
+public interface PushRelabelListener {
+    void phaseFinished(PushRelabelStatistics statistics);
+
+    /**
+     * Listener that emits a {@code org.openstructures.flow.PushRelabelPhase} JFR event for every phase.
+     * Events are only created when a recording has the event enabled.
+     */
+    static PushRelabelListener jfrEvents() {
+        return PushRelabelPhaseEvent::commit;
+    }
+}
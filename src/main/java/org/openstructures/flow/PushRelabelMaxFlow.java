@@ -1,27 +1,55 @@
 package org.openstructures.flow;
 
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 import org.open_structures.memento.Memento;
 import org.open_structures.memento.Restorable;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.*;
-import static com.google.common.collect.Lists.newLinkedList;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.immutableEntry;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.collect.Sets.newLinkedHashSet;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Definitions: for arc (i,j) we refer to node i as the tail of arc (i,j) and node j as its head.
  * Recommended reading is Chapter 7 from Network Flows Theory, Algorithms, and Applications by Ravindra K. Ahuja
+ * <p>
+ * Distances, excesses and flows are kept in maps keyed by {@link Node}, so solving allocates boxed integers and map entries
+ * as it goes, and {@link PushRelabelWorkspace} doesn't help here. Use {@link CompactPushRelabelMaxFlow} where allocation matters.
  */
-public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State> {
+public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>, MaxFlowSolver {
+    private static final int NO_INTERRUPTED_PHASE = -1;
+
     private final Map<Node, Integer> nodeDistanceMap = newHashMap();
     private final Map<Node, Integer> nodeExcessMap = newHashMap();
+    private final Table<Node, Node, Integer> flowTable = HashBasedTable.create(); // only arcs with positive flow
+    private final UndoLog<Node, Integer> distancesLog = new UndoLog<>();
+    private final UndoLog<Node, Integer> excessLog = new UndoLog<>();
+    private final UndoLog<Map.Entry<Node, Node>, Integer> flowLog = new UndoLog<>();
+    private ActiveNodeSelectionStrategy activeNodes = ActiveNodeSelectionStrategy.highestLabel();
+    private final Queue<Node> nodesQueue = new ArrayDeque<>(); // reused by every breadth first search
     private final FlowNetwork flowNetwork;
     private final AdmissibleNodeSelectionStrategy admissibleNodeSelectionStrategy;
+    private int numberOfNodes;
+    private double globalRelabelingFrequency;
+    private int relabelsSinceGlobalRelabel;
+    private boolean gapRelabeling;
+    private final List<Set<Node>> nodesByDistance = newArrayList(); // nodes with distance labels below n, only kept for gap relabeling
+    private int highestIndexedDistance = -1;
+    private PushRelabelListener listener;
+    private PushRelabelStatistics statistics; // of the running phase, only collected if there is a listener
+    private long operations; // pushes and relabels
+    private volatile boolean cancelled;
+    private int interruptedDistanceLimit = NO_INTERRUPTED_PHASE;
 
     public PushRelabelMaxFlow(FlowNetwork flowNetwork, AdmissibleNodeSelectionStrategy admissibleNodeSelectionStrategy) {
         this.flowNetwork = requireNonNull(flowNetwork);
@@ -29,67 +57,252 @@ public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>
     }
 
     public PushRelabelMaxFlow(FlowNetwork flowNetwork) {
-        this(flowNetwork, new RandomAdmissibleNodeSelectionStrategy());
+        this(flowNetwork, new CurrentArcAdmissibleNodeSelectionStrategy());
     }
 
     /**
      * Calculates nodes' distances and floods all nodes adjacent to the source.
-     * This creates the first set of active nodes what allows to kick off the basic operation in this algorithm {@link PushRelabelMaxFlow#pushRelabel()}
+     * This creates the first set of active nodes what allows to kick off the basic operation in this algorithm, pushing and relabeling, see {@link #findMinCut()}
      */
     public void preprocess() {
-        final Node s = getSource();
+        startPhase(PushRelabelStatistics.Phase.PREPROCESS);
         calculateDistances();
-        for (Node n : newHashSet(getSuccessors(s))) {
-            pushFlow(flowNetwork.getArcCapacity(s, n), s, n); // push everything from source
+        floodSourceSuccessors();
+        finishPhase();
+    }
+
+    private void floodSourceSuccessors() {
+        for (Node s : flowNetwork.getSources()) {
+            for (Node n : newArrayList(flowNetwork.getSuccessors(s))) {
+                int distance = getNodeDistance(n);
+                if (distance >= 0 && distance < numberOfNodes) { // no point flooding nodes that can't reach the sink
+                    pushFlow(flowNetwork.getArcCapacity(s, n), s, n); // push everything from source
+                    if (statistics != null) {
+                        statistics.saturatingPushes++;
+                    }
+                }
+            }
         }
     }
 
+    /**
+     * Calculates exact distances with breadth first search from the sink over the reverse arcs of the residual graph.
+     * Nodes that can't reach the sink but can reach the source get n plus their distance to the source,
+     * so their excess goes back to the source. Nodes that can reach neither don't get a distance label at all.
+     * With several sinks the search starts from all of them at once, and so does the search from the sources.
+     */
     public void calculateDistances() {
-        final Node s = getSource();
-        final Node t = getSink();
+        numberOfNodes = flowNetwork.getNumberOfNodes();
+        if (distancesLog.isRecording()) {
+            nodeDistanceMap.forEach(distancesLog::recordChange);
+        }
         nodeDistanceMap.clear();
-        nodeDistanceMap.put(s, flowNetwork.getNumberOfNodes());
-        nodeDistanceMap.put(t, 0);
-        calculateDistance(newLinkedList(getPredecessors(t)), 0);
+        indexNodesByDistance();
+        admissibleNodeSelectionStrategy.reset();
+        relabelsSinceGlobalRelabel = 0;
+        for (Node s : flowNetwork.getSources()) {
+            setNodeDistance(s, numberOfNodes);
+        }
+        for (Node t : flowNetwork.getSinks()) {
+            setNodeDistance(t, 0);
+        }
+        calculateDistances(flowNetwork.getSinks());
+        calculateDistances(flowNetwork.getSources());
     }
 
-    private void calculateDistance(Queue<Node> nodesQueue, int currentDistance) {
-        Queue<Node> nextLevelNodes = newLinkedList();
+    /**
+     * Labels nodes that have not been labeled yet and can reach any of the roots in the residual graph.
+     */
+    private void calculateDistances(Set<Node> roots) {
+        nodesQueue.addAll(roots);
         while (!nodesQueue.isEmpty()) {
             Node node = nodesQueue.poll();
-            if (!nodeDistanceMap.containsKey(node)) {
-                nodeDistanceMap.put(node, currentDistance + 1);
-                nextLevelNodes.addAll(getPredecessors(node));
+            int predecessorDistance = nodeDistanceMap.get(node) + 1;
+            for (Node predecessor : getPredecessors(node)) {
+                if (!nodeDistanceMap.containsKey(predecessor)) {
+                    setNodeDistance(predecessor, predecessorDistance);
+                    nodesQueue.add(predecessor);
+                }
             }
         }
-        if (!nextLevelNodes.isEmpty()) {
-            calculateDistance(nextLevelNodes, currentDistance + 1);
+    }
+
+    /**
+     * Local relabels only ever increase distance labels by the smallest possible amount, so over time labels drift away
+     * from the actual distances and the algorithm ends up relabeling nodes over and over again.
+     * Global relabeling periodically recalculates exact distances, see {@link #calculateDistances()}.
+     *
+     * @param frequency global relabeling is done after every frequency * n relabels. 0 turns it off, which is the default.
+     */
+    public void setGlobalRelabelingFrequency(double frequency) {
+        checkArgument(frequency >= 0, "Frequency can't be negative");
+        this.globalRelabelingFrequency = frequency;
+    }
+
+    /**
+     * When the last node with distance label d gets relabeled, nodes with labels between d and n are cut off from the sink:
+     * every arc in the residual graph decreases the label by at most 1, so a path to the sink would have to go through label d.
+     * Gap relabeling lifts all such nodes to n + 1 at once, so their excess goes straight back to the source
+     * instead of being relabeled step by step. It's off by default.
+     */
+    public void setGapRelabeling(boolean gapRelabeling) {
+        this.gapRelabeling = gapRelabeling;
+        indexNodesByDistance();
+    }
+
+    /**
+     * Order in which active nodes get discharged, see {@link ActiveNodeSelectionStrategy}.
+     * It's {@link ActiveNodeSelectionStrategy#highestLabel()} by default. A new strategy is used from the next phase on.
+     */
+    public void setActiveNodeSelectionStrategy(ActiveNodeSelectionStrategy activeNodeSelectionStrategy) {
+        this.activeNodes = requireNonNull(activeNodeSelectionStrategy);
+    }
+
+    /**
+     * Once a listener is set, pushes, relabels and other operations are counted and every phase of the algorithm is timed,
+     * see {@link PushRelabelStatistics}. Without a listener, which is the default, nothing is collected.
+     * Use {@link PushRelabelListener#jfrEvents()} to record the statistics with JDK Flight Recorder.
+     *
+     * @param listener null turns the statistics off
+     */
+    public void setListener(PushRelabelListener listener) {
+        this.listener = listener;
+    }
+
+    private void startPhase(PushRelabelStatistics.Phase phase) {
+        statistics = listener != null ? new PushRelabelStatistics(phase) : null;
+    }
+
+    private void finishPhase() {
+        if (statistics != null) {
+            PushRelabelStatistics finishedPhase = statistics;
+            statistics = null;
+            finishedPhase.finish();
+            listener.phaseFinished(finishedPhase);
         }
     }
 
-    private void pushRelabelNode(Node n) {
+    /**
+     * @return false if the admissible node can't take any more flow, see {@link ActiveNodeSelectionStrategy#getPushLimit(int)}
+     */
+    private boolean pushRelabelNode(Node n) {
         checkNotNull(n);
         checkArgument(getNodeExcess(n) > 0, "No excess means there is nothing to push");
 
         Optional<Node> admissibleNodeOptional = admissibleNodeSelectionStrategy.getAdmissibleNode(this, n);
         if (admissibleNodeOptional.isPresent()) {
             Node admissibleNode = admissibleNodeOptional.get();
-            int capacityToPush = Math.min(nodeExcessMap.get(n), getArcCapacity(n, admissibleNode));
+            int arcCapacity = getArcCapacity(n, admissibleNode);
+            int capacityToPush = Math.min(nodeExcessMap.get(n), arcCapacity);
+            if (!isSource(admissibleNode) && !isSink(admissibleNode)) {
+                capacityToPush = Math.min(capacityToPush, activeNodes.getPushLimit(getNodeExcess(admissibleNode)));
+                if (capacityToPush == 0) {
+                    return false;
+                }
+            }
             pushFlow(capacityToPush, n, admissibleNode);
+            operations++;
+            if (statistics != null) {
+                if (capacityToPush == arcCapacity) {
+                    statistics.saturatingPushes++;
+                } else {
+                    statistics.nonSaturatingPushes++;
+                }
+            }
         } else {
-            OptionalInt minSuccessorDistance = getSuccessors(n).stream().mapToInt(this::getNodeDistance).min();
-            if (minSuccessorDistance.isPresent()) {
-                nodeDistanceMap.put(n, minSuccessorDistance.getAsInt() + 1);
-            } else {
-                throw new IllegalStateException("Active node " + n + " does not have successors.");
+            relabel(n);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the distance of the node to 1 plus the minimum distance of its successors, so at least one of its arcs becomes admissible.
+     */
+    private void relabel(Node n) {
+        int minSuccessorDistance = Integer.MAX_VALUE;
+        for (Node successor : flowNetwork.getSuccessors(n)) {
+            int successorDistance = getNodeDistance(successor);
+            if (successorDistance >= 0) {
+                minSuccessorDistance = Math.min(minSuccessorDistance, successorDistance);
+            }
+        }
+        if (minSuccessorDistance == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Active node " + n + " does not have successors.");
+        }
+        final int distance = getNodeDistance(n);
+        setNodeDistance(n, minSuccessorDistance + 1);
+        admissibleNodeSelectionStrategy.nodeRelabeled(n);
+        relabelsSinceGlobalRelabel++;
+        operations++;
+        if (statistics != null) {
+            statistics.relabels++;
+        }
+        if (gapRelabeling && distance >= 0 && distance < numberOfNodes && nodesByDistance.get(distance).isEmpty()) {
+            liftNodesAboveGap(distance);
+        }
+    }
+
+    private void liftNodesAboveGap(int gap) {
+        if (statistics != null) {
+            statistics.gaps++;
+        }
+        for (int distance = gap + 1; distance <= highestIndexedDistance; distance++) {
+            Set<Node> nodes = nodesByDistance.get(distance);
+            if (statistics != null) {
+                statistics.nodesLiftedAboveGaps += nodes.size();
+            }
+            for (Node node : nodes) {
+                distancesLog.recordChange(node, nodeDistanceMap.put(node, numberOfNodes + 1));
+                admissibleNodeSelectionStrategy.nodeRelabeled(node);
+            }
+            nodes.clear();
+        }
+        highestIndexedDistance = gap - 1;
+    }
+
+    private void setNodeDistance(Node n, int distance) {
+        Integer oldDistance = nodeDistanceMap.put(n, distance);
+        distancesLog.recordChange(n, oldDistance);
+        if (gapRelabeling) {
+            if (oldDistance != null && oldDistance >= 0 && oldDistance < numberOfNodes) {
+                nodesByDistance.get(oldDistance).remove(n);
+            }
+            if (distance < numberOfNodes) {
+                nodesByDistance.get(distance).add(n);
+                highestIndexedDistance = Math.max(highestIndexedDistance, distance);
+            }
+        }
+    }
+
+    /**
+     * Groups labeled nodes by distance if gap relabeling is on
+     */
+    private void indexNodesByDistance() {
+        nodesByDistance.clear();
+        highestIndexedDistance = -1;
+        if (gapRelabeling) {
+            for (int distance = 0; distance < numberOfNodes; distance++) {
+                nodesByDistance.add(newLinkedHashSet());
             }
+            nodeDistanceMap.forEach((node, distance) -> {
+                if (distance < numberOfNodes) {
+                    nodesByDistance.get(distance).add(node);
+                    highestIndexedDistance = Math.max(highestIndexedDistance, distance);
+                }
+            });
         }
     }
 
+    /**
+     * @throws IllegalStateException if the network has several sinks
+     */
     public Node getSink() {
         return flowNetwork.getSink();
     }
 
+    /**
+     * @throws IllegalStateException if the network has several sources
+     */
     public Node getSource() {
         return flowNetwork.getSource();
     }
@@ -100,49 +313,327 @@ public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>
 
     /**
      * The basic operation in this algorithm is to select an active node and try to remove its excess by pushing flow to its neighbors.
+     * The main way to affect performance of push relabel algorithm is by specifying the rule to select active nodes.
+     * The rule is given by {@link #setActiveNodeSelectionStrategy(ActiveNodeSelectionStrategy)}, the highest distance label by default.
+     * Active nodes with distance labels not below the limit are left with their excess.
+     */
+    private void pushRelabel(int distanceLimit) {
+        pushRelabel(distanceLimit, SolveLimits.none(), false);
+    }
+
+    /**
+     * Stops when any of the limits is hit, the distance limit is remembered so the phase can be resumed
      */
-    private void pushRelabel() {
-        while (hasActiveNodes()) {
-            Node activeNode = getActiveNode();
-            pushRelabelNode(activeNode);
+    private SolveStatus pushRelabel(int distanceLimit, SolveLimits limits, boolean cancellable) {
+        startPhase(PushRelabelStatistics.Phase.DISCHARGE);
+        interruptedDistanceLimit = NO_INTERRUPTED_PHASE;
+        final long startNanos = limits.hasTimeBudget() ? System.nanoTime() : 0;
+        final long startOperations = operations;
+        SolveStatus status = SolveStatus.FINISHED;
+        collectActiveNodes();
+        while (true) {
+            if (limits.hasTargetFlow() && getFlowAmount() >= limits.getTargetFlow()) {
+                status = SolveStatus.TARGET_FLOW_REACHED;
+            } else if (cancellable && cancelled) {
+                status = SolveStatus.CANCELLED;
+            } else if (operations - startOperations >= limits.getOperationBudget()) {
+                status = SolveStatus.OPERATION_BUDGET_EXHAUSTED;
+            } else if (limits.hasTimeBudget() && System.nanoTime() - startNanos >= limits.getTimeBudgetNanos()) {
+                status = SolveStatus.TIME_BUDGET_EXHAUSTED;
+            }
+            if (!status.isFinished()) {
+                interruptedDistanceLimit = distanceLimit;
+                break;
+            }
+            Node activeNode = activeNodes.poll();
+            if (activeNode == null) {
+                break;
+            }
+            if (getNodeDistance(activeNode) >= distanceLimit) {
+                continue;
+            }
+            discharge(activeNode);
+            if (globalRelabelingFrequency > 0 && relabelsSinceGlobalRelabel >= globalRelabelingFrequency * numberOfNodes) {
+                globalRelabel();
+            }
+        }
+        finishPhase();
+        if (cancellable) {
+            cancelled = false; // the cancel was meant for this solve, whether it has stopped it or not
         }
+        return status;
+    }
+
+    private void globalRelabel() {
+        long start = statistics != null ? System.nanoTime() : 0;
+        calculateDistances();
+        collectActiveNodes();
+        if (statistics != null) {
+            statistics.globalRelabels++;
+            statistics.globalRelabelNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void collectActiveNodes() {
+        activeNodes.clear();
+        nodeExcessMap.forEach((node, excess) -> {
+            if (!isSource(node) && !isSink(node)) {
+                activeNodes.add(node, getNodeDistance(node), excess);
+            }
+        });
     }
 
     /**
-     * The main way to affect performance of push relabel algorithm is by specifying the rule to select active nodes.
-     * Here we select an active node with the highest value of the distance label.
+     * Pushes the excess of the node until it's gone, the node gets relabeled or the push limit stops it.
+     * In the latter cases the node goes back to the active nodes.
      */
-    private Node getActiveNode() {
-        return getActiveNodes()
-                .stream()
-                .max(Comparator.comparingInt(this::getNodeDistance))
-                .orElse(null);
+    private void discharge(Node n) {
+        if (statistics != null) {
+            statistics.discharges++;
+        }
+        final int distance = getNodeDistance(n);
+        while (getNodeExcess(n) > 0 && getNodeDistance(n) == distance) {
+            if (!pushRelabelNode(n)) {
+                break;
+            }
+        }
+        if (getNodeExcess(n) > 0) {
+            activeNodes.add(n, getNodeDistance(n), getNodeExcess(n));
+        }
     }
 
     public void preflowPush() {
         preprocess();
-        pushRelabel();
+        pushRelabel(Integer.MAX_VALUE);
     }
 
     /**
-     * Active node is a node with strictly positive excess.
-     * The source and sink nodes are never active.
-     * Feasible flow has to satisfy flow bound constraint,
-     * that is the amount of flow coming into an intermediate node equals the amount of flow coming out.
-     * So the presence of active nodes indicates that the solution is infeasible.
-     * The idea behind push relabel algorithm is that after flooding all nodes adjacent to the source (making them active)
-     * it then strives to achieve feasibility. The basic operation in this algorithm is to select an active node
-     * and try to remove its excess by pushing flow to its neighbors.
+     * Same as {@link #preflowPush()}, but stops when any of the limits is hit
+     */
+    public SolveStatus preflowPush(SolveLimits limits) {
+        checkNotNull(limits);
+        preprocess();
+        return pushRelabel(Integer.MAX_VALUE, limits, true);
+    }
+
+    /**
+     * Same as {@link #findMinCut()}, but stops when any of the limits is hit
+     */
+    public SolveStatus findMinCut(SolveLimits limits) {
+        checkNotNull(limits);
+        preprocess();
+        return pushRelabel(numberOfNodes, limits, true);
+    }
+
+    /**
+     * Carries on with the phase that was stopped by the limits or cancelled, from where it stopped.
+     * The limits apply to the resumed part only.
+     */
+    public SolveStatus resume(SolveLimits limits) {
+        checkNotNull(limits);
+        checkState(interruptedDistanceLimit != NO_INTERRUPTED_PHASE, "There is no stopped solve to resume");
+        return pushRelabel(interruptedDistanceLimit, limits, true);
+    }
+
+    /**
+     * Makes the running solve stop before the next discharge with {@link SolveStatus#CANCELLED}, it can be called from any thread.
+     * Only solves started with {@link SolveLimits} can be cancelled. If no such solve is running, the next one gets cancelled,
+     * so a cancel that comes just before the solve starts is not lost. Every such solve clears the cancel when it ends.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Finds out whether the maximum flow is at least the target, which is often much faster than finding the maximum flow:
+     * the algorithm stops as soon as the sink receives the target amount.
+     */
+    public boolean hasFlowOfAtLeast(int targetFlow) {
+        findMinCut(SolveLimits.none().withTargetFlow(targetFlow));
+        return getFlowAmount() >= targetFlow;
+    }
+
+    /**
+     * Same as {@link #preflowPush()}
+     */
+    @Override
+    public void solve() {
+        preflowPush();
+    }
+
+    /**
+     * The first phase of the algorithm. It only discharges active nodes with distance labels below n and stops
+     * once there are none left. Nodes with labels n or above can't reach the sink, so at this point the sink has
+     * received the maximum flow and the minimum cut is known, see {@link #getMinCutSourceSide()}.
+     * What remains is the excess stuck in the nodes that has to go back to the source. Often it takes a good part of the
+     * running time, and it's not needed if only the flow amount or the minimum cut matter.
+     * Use {@link #convertPreflowToFlow()} to get a feasible flow afterwards.
      */
-    private boolean hasActiveNodes() {
+    public void findMinCut() {
+        preprocess();
+        pushRelabel(numberOfNodes);
+    }
+
+    /**
+     * The second phase of the algorithm. Returns the excess left after {@link #findMinCut()} to the source,
+     * so that the preflow becomes a feasible flow. The flow amount doesn't change.
+     */
+    public void convertPreflowToFlow() {
+        pushRelabel(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the maximum flow again after capacities of some arcs have changed, starting from the current flow rather than from scratch.
+     * If an arc ends up with more flow than its new capacity, the extra flow goes back to the tail of the arc
+     * and is removed from the arcs after the head, all the way to the sink or to some node with enough excess.
+     * Distance labels are recalculated only if some of the arcs with increased residual capacity violate them.
+     * This way the cost depends on the amount of flow that has to be rerouted rather than the size of the network.
+     *
+     * @param capacityChanges amounts to add to the capacities of arcs (tail, head) of the original network, negative amounts decrease them
+     * @return the new maximum flow amount
+     */
+    public int changeArcCapacities(Table<Node, Node, Integer> capacityChanges) {
+        checkNotNull(capacityChanges);
+        checkState(numberOfNodes > 0, "Distances have not been calculated yet");
+        SetMultimap<Node, Node> arcsWithMoreResidualCapacity = HashMultimap.create();
+        Map<Node, Integer> deficits = newHashMap();
+        boolean distancesInvalid = false;
+        for (Table.Cell<Node, Node, Integer> change : capacityChanges.cellSet()) {
+            final Node tail = change.getRowKey();
+            final Node head = change.getColumnKey();
+            final int capacityChange = change.getValue();
+            int netFlow = getArcFlow(tail, head) - getArcFlow(head, tail);
+            int capacity = getArcCapacity(tail, head) + netFlow + capacityChange;
+            checkArgument(capacity >= 0, "Capacity of arc (%s, %s) can't be negative", tail, head);
+            if (capacity < netFlow) {
+                int extraFlow = netFlow - capacity;
+                cancelFlow(extraFlow, tail, head, deficits);
+                if (!isSource(tail)) {
+                    addToExcess(extraFlow, tail);
+                }
+            }
+            setArcCapacity(getArcCapacity(tail, head) + capacityChange, tail, head);
+            if (capacityChange > 0) {
+                arcsWithMoreResidualCapacity.put(tail, head);
+            }
+            distancesInvalid |= getNodeDistance(tail) < 0 || getNodeDistance(head) < 0;
+        }
+        while (!deficits.isEmpty()) {
+            final Node node = deficits.keySet().iterator().next();
+            int deficit = deficits.remove(node);
+            int excessToUse = Math.min(deficit, getNodeExcess(node));
+            if (excessToUse > 0) {
+                reduceExcess(excessToUse, node);
+                deficit -= excessToUse;
+            }
+            for (Map.Entry<Node, Integer> arcFlow : newArrayList(flowTable.row(node).entrySet())) {
+                if (deficit == 0) {
+                    break;
+                }
+                int flowToCancel = Math.min(deficit, arcFlow.getValue());
+                cancelFlow(flowToCancel, node, arcFlow.getKey(), deficits);
+                arcsWithMoreResidualCapacity.put(node, arcFlow.getKey());
+                deficit -= flowToCancel;
+            }
+            checkState(deficit == 0, "Node %s has more outgoing flow than incoming", node);
+        }
+        for (Map.Entry<Node, Node> arc : arcsWithMoreResidualCapacity.entries()) {
+            final Node tail = arc.getKey();
+            final Node head = arc.getValue();
+            if (!isSource(tail) && getArcCapacity(tail, head) > 0 && getNodeDistance(tail) > getNodeDistance(head) + 1) {
+                distancesInvalid = true;
+            }
+        }
+        if (distancesInvalid) {
+            calculateDistances();
+        } else {
+            admissibleNodeSelectionStrategy.reset();
+        }
+        floodSourceSuccessors();
+        pushRelabel(Integer.MAX_VALUE);
+        return getFlowAmount();
+    }
+
+    /**
+     * Adds capacity to the arc from the source to the node, keeping the preflow and the distance labels.
+     * If the node may still reach the sink the whole residual capacity of the arc is pushed right away, as in {@link #preprocess()},
+     * so the labels stay valid.
+     */
+    void increaseSourceArcCapacity(int amount, Node head) {
+        checkArgument(amount > 0);
+        checkState(numberOfNodes > 0, "Distances have not been calculated yet");
         final Node s = getSource();
+        setArcCapacity(getArcCapacity(s, head) + amount, s, head);
+        int distance = getNodeDistance(head);
+        if (distance >= 0 && distance < numberOfNodes) {
+            pushFlow(getArcCapacity(s, head), s, head);
+        }
+    }
+
+    /**
+     * Takes capacity from the arc from the node to the sink, keeping the preflow and the distance labels.
+     * Flow above the new capacity goes back to the node as excess, which keeps the labels valid.
+     */
+    void decreaseSinkArcCapacity(int amount, Node tail) {
+        checkArgument(amount > 0);
+        checkState(numberOfNodes > 0, "Distances have not been calculated yet");
         final Node t = getSink();
-        for (Node nodeWithExcess : nodeExcessMap.keySet()) {
-            if (!nodeWithExcess.equals(s) && !nodeWithExcess.equals(t)) {
-                return true;
+        int residualCapacity = getArcCapacity(tail, t);
+        if (amount > residualCapacity) {
+            int extraFlow = amount - residualCapacity;
+            Map<Node, Integer> deficits = newHashMap();
+            cancelFlow(extraFlow, tail, t, deficits);
+            checkState(deficits.isEmpty(), "Sink has less excess than the flow coming into it");
+            addToExcess(extraFlow, tail);
+        }
+        setArcCapacity(getArcCapacity(tail, t) - amount, tail, t);
+    }
+
+    /**
+     * Carries on with the first phase of the algorithm from the current preflow and distance labels,
+     * see {@link #findMinCut()}
+     */
+    void continueFindingMinCut() {
+        checkState(numberOfNodes > 0, "Distances have not been calculated yet");
+        pushRelabel(numberOfNodes);
+    }
+
+    /**
+     * Sends the flow back from the head to the tail. The head loses the excess it got, and if it doesn't have enough
+     * it goes into deficit, which means it has more outgoing flow than incoming.
+     */
+    private void cancelFlow(int amount, Node tail, Node head, Map<Node, Integer> deficits) {
+        setArcCapacity(getArcCapacity(tail, head) + amount, tail, head);
+        setArcCapacity(getArcCapacity(head, tail) - amount, head, tail);
+        setArcFlow(getArcFlow(tail, head) - amount, tail, head);
+        if (!isSource(head)) {
+            int excessToRemove = Math.min(amount, getNodeExcess(head));
+            if (excessToRemove > 0) {
+                reduceExcess(excessToRemove, head);
+            }
+            if (excessToRemove < amount) {
+                deficits.merge(head, amount - excessToRemove, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Nodes that can't reach the sink in the residual graph. Together with the rest of the nodes they form the minimum cut
+     * once the maximum flow (or preflow) has been found. The sum of the capacities of the arcs going from these nodes
+     * to the rest of the network is equal to the maximum flow amount.
+     */
+    @Override
+    public Set<Node> getMinCutSourceSide() {
+        Set<Node> sinkSide = newHashSet(flowNetwork.getSinks());
+        nodesQueue.addAll(sinkSide);
+        while (!nodesQueue.isEmpty()) {
+            for (Node predecessor : getPredecessors(nodesQueue.poll())) {
+                if (sinkSide.add(predecessor)) {
+                    nodesQueue.add(predecessor);
+                }
             }
         }
-        return false;
+        return Sets.difference(flowNetwork.getNodes(), sinkSide).immutableCopy();
     }
 
     /**
@@ -157,14 +648,117 @@ public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>
         setArcCapacity(getArcCapacity(tail, head) - amount, tail, head);
         // setting the "reverse" arc capacity
         setArcCapacity(getArcCapacity(head, tail) + amount, head, tail);
+        addFlow(amount, tail, head);
         addToExcess(amount, head);
         if (!isSource(tail)) {
             reduceExcess(amount, tail);
         }
     }
 
+    /**
+     * Flow going in the opposite direction is cancelled first, so only one of the arcs (tail, head) and (head, tail) has flow.
+     */
+    private void addFlow(int amount, Node tail, Node head) {
+        int reverseFlow = getArcFlow(head, tail);
+        if (reverseFlow > 0) {
+            int cancelledFlow = Math.min(amount, reverseFlow);
+            setArcFlow(reverseFlow - cancelledFlow, head, tail);
+            amount -= cancelledFlow;
+        }
+        if (amount > 0) {
+            setArcFlow(getArcFlow(tail, head) + amount, tail, head);
+        }
+    }
+
+    private void setArcFlow(int flow, Node tail, Node head) {
+        Integer oldFlow = flow == 0 ? flowTable.remove(tail, head) : flowTable.put(tail, head, flow);
+        if (flowLog.isRecording()) {
+            flowLog.recordChange(immutableEntry(tail, head), oldFlow);
+        }
+    }
+
+    /**
+     * Amount of flow the algorithm has sent along the arc (tail, head).
+     * If the original network has arcs in both directions, only the net flow is counted.
+     */
+    @Override
+    public int getArcFlow(Node tail, Node head) {
+        checkNotNull(tail);
+        checkNotNull(head);
+        Integer flow = flowTable.get(tail, head);
+        return flow != null ? flow : 0;
+    }
+
+    /**
+     * All arcs that carry flow
+     */
+    @Override
+    public Stream<ArcFlow> getArcFlows() {
+        return flowTable.cellSet().stream().map(arc -> new ArcFlow(arc.getRowKey(), arc.getColumnKey(), arc.getValue()));
+    }
+
+    /**
+     * Decomposes the flow into paths from the source to the sink and cycles.
+     * Only a feasible flow can be decomposed, so if {@link #findMinCut()} was used, call {@link #convertPreflowToFlow()} first.
+     */
+    public List<FlowPath> decomposeFlow() {
+        checkState(getActiveNodes().isEmpty(), "Preflow has to be converted to flow first");
+        Table<Node, Node, Integer> remainingFlow = HashBasedTable.create(flowTable);
+        List<FlowPath> paths = newArrayList();
+        for (Node s : flowNetwork.getSources()) {
+            while (remainingFlow.containsRow(s)) {
+                paths.add(removePath(remainingFlow, s));
+            }
+        }
+        while (!remainingFlow.isEmpty()) {
+            paths.add(removePath(remainingFlow, remainingFlow.rowKeySet().iterator().next()));
+        }
+        return paths;
+    }
+
+    /**
+     * Follows the flow from the start node until it comes to a node without outgoing flow (normally the sink)
+     * or to a node that is already on the path. In the latter case it's a cycle.
+     * Removes the smallest flow along the path or the cycle from all of its arcs.
+     */
+    private FlowPath removePath(Table<Node, Node, Integer> remainingFlow, Node start) {
+        List<Node> path = newArrayList(start);
+        Map<Node, Integer> positions = newHashMap();
+        positions.put(start, 0);
+        Node node = start;
+        while (remainingFlow.containsRow(node)) {
+            Node next = remainingFlow.row(node).keySet().iterator().next();
+            Integer position = positions.get(next);
+            if (position != null) {
+                path = newArrayList(path.subList(position, path.size()));
+                path.add(next);
+                break;
+            }
+            positions.put(next, path.size());
+            path.add(next);
+            node = next;
+        }
+        int flow = Integer.MAX_VALUE;
+        for (int i = 1; i < path.size(); i++) {
+            flow = Math.min(flow, remainingFlow.get(path.get(i - 1), path.get(i)));
+        }
+        for (int i = 1; i < path.size(); i++) {
+            int arcFlow = remainingFlow.get(path.get(i - 1), path.get(i)) - flow;
+            if (arcFlow == 0) {
+                remainingFlow.remove(path.get(i - 1), path.get(i));
+            } else {
+                remainingFlow.put(path.get(i - 1), path.get(i), arcFlow);
+            }
+        }
+        return new FlowPath(path, flow);
+    }
+
     private boolean isSource(Node node) {
-        return flowNetwork.getSource().equals(node);
+        return flowNetwork.isSource(node);
+    }
+
+    private boolean isSink(Node node) {
+        return flowNetwork.isSink(node);
     }
 
     private void reduceExcess(int amount, Node node) {
@@ -172,11 +766,11 @@ public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>
         checkArgument(getNodeExcess(node) > 0);
 
         if (amount == getNodeExcess(node)) {
-            nodeExcessMap.remove(node);
+            excessLog.recordChange(node, nodeExcessMap.remove(node));
         } else {
             int newExcess = nodeExcessMap.get(node) - amount;
             checkState(newExcess > 0, "Excess can not be negative");
-            nodeExcessMap.put(node, newExcess);
+            excessLog.recordChange(node, nodeExcessMap.put(node, newExcess));
         }
     }
 
@@ -185,10 +779,16 @@ public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>
     }
 
     private void addToExcess(int amount, Node node) {
-        if (nodeExcessMap.containsKey(node)) {
-            nodeExcessMap.compute(node, (n, oldExcess) -> oldExcess != null ? oldExcess + amount : amount);
-        } else {
-            nodeExcessMap.put(node, amount);
+        Integer oldExcess = nodeExcessMap.get(node);
+        excessLog.recordChange(node, oldExcess);
+        final int excess = oldExcess != null ? oldExcess + amount : amount;
+        nodeExcessMap.put(node, excess);
+        if (!isSource(node) && !isSink(node) && getNodeDistance(node) >= 0) {
+            if (oldExcess != null) {
+                activeNodes.excessIncreased(node, excess);
+            } else {
+                activeNodes.add(node, getNodeDistance(node), excess);
+            }
         }
     }
 
@@ -208,13 +808,24 @@ public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>
         return flowNetwork.getArcCapacity(tail, head);
     }
 
+    /**
+     * Flow the sinks have received
+     */
+    @Override
     public int getFlowAmount() {
-        return getNodeExcess(getSink());
+        int flowAmount = 0;
+        for (Node t : flowNetwork.getSinks()) {
+            flowAmount += getNodeExcess(t);
+        }
+        return flowAmount;
     }
 
+    /**
+     * Successors that have a distance label, as a view that changes with the network
+     */
     public Set<Node> getSuccessors(Node tail) {
         checkNotNull(tail);
-        return flowNetwork.getSuccessors(tail).stream().filter(nodeDistanceMap::containsKey).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(Sets.filter(flowNetwork.getSuccessors(tail), nodeDistanceMap::containsKey));
     }
 
     private Set<Node> getPredecessors(Node head) {
@@ -222,50 +833,104 @@ public class PushRelabelMaxFlow implements Restorable<PushRelabelMaxFlow.State>
         return flowNetwork.getPredecessors(head);
     }
 
+    /**
+     * Nodes connected to the given node by an arc in either direction
+     */
+    Set<Node> getAdjacentNodes(Node n) {
+        checkNotNull(n);
+        return Sets.union(flowNetwork.getSuccessors(n), flowNetwork.getPredecessors(n));
+    }
+
+    /**
+     * Changes when nodes get new adjacent nodes, see {@link #getAdjacentNodes(Node)}
+     */
+    int getArcsVersion() {
+        return flowNetwork.getArcsVersion();
+    }
+
     public boolean isArcAdmissible(Node tail, Node head) {
         return getNodeDistance(tail) == getNodeDistance(head) + 1;
     }
 
+    /**
+     * Active node is a node with strictly positive excess.
+     * The source and sink nodes are never active.
+     * Feasible flow has to satisfy flow bound constraint,
+     * that is the amount of flow coming into an intermediate node equals the amount of flow coming out.
+     * So the presence of active nodes indicates that the solution is infeasible.
+     * The idea behind push relabel algorithm is that after flooding all nodes adjacent to the source (making them active)
+     * it then strives to achieve feasibility. The basic operation in this algorithm is to select an active node
+     * and try to remove its excess by pushing flow to its neighbors.
+     * The set is a view that changes as the algorithm runs.
+     */
     public Set<Node> getActiveNodes() {
-        Node s = getSource();
-        Node t = getSink();
-        return nodeExcessMap.keySet().stream().filter(n -> !n.equals(s) && !n.equals(t)).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(Sets.filter(nodeExcessMap.keySet(), n -> !isSource(n) && !isSink(n)));
     }
 
+    /**
+     * Taking the state is O(1), changes of arc capacities, flows, excesses and distance labels are recorded from then on.
+     * Restoring takes time proportional to the number of values changed since the state was taken.
+     * Changes are recorded only while some state can still be restored, see {@link State#release()}.
+     */
     @Override
     public State getState() {
-        return new State(flowNetwork.getState(), ImmutableMap.copyOf(nodeDistanceMap), ImmutableMap.copyOf(nodeExcessMap));
+        return new State(this, flowNetwork.getState(), distancesLog.checkpoint(), excessLog.checkpoint(), flowLog.checkpoint());
     }
 
+    /**
+     * Restoring a state doesn't keep the changes made after it, so states taken after the restored one can't be restored anymore.
+     * The restored state itself can be restored again.
+     *
+     * @throws IllegalArgumentException if the state belongs to another instance, has been released
+     * or was taken after a state that has been restored since
+     */
     @Override
     public void restore(State state) {
         checkNotNull(state);
+        checkArgument(distancesLog.isValid(state.distancesCheckpoint) && excessLog.isValid(state.excessCheckpoint)
+                && flowLog.isValid(state.flowCheckpoint), "State is not valid for this instance");
         flowNetwork.restore(state.flowNetworkState);
-        nodeDistanceMap.clear();
-        nodeDistanceMap.putAll(state.nodeDistanceMap);
-        nodeExcessMap.clear();
-        nodeExcessMap.putAll(state.nodeExcessMap);
+        distancesLog.rollback(state.distancesCheckpoint, (node, distance) -> restoreValue(nodeDistanceMap, node, distance));
+        excessLog.rollback(state.excessCheckpoint, (node, excess) -> restoreValue(nodeExcessMap, node, excess));
+        flowLog.rollback(state.flowCheckpoint, (arc, flow) -> setArcFlow(flow != null ? flow : 0, arc.getKey(), arc.getValue()));
+        indexNodesByDistance();
+        admissibleNodeSelectionStrategy.reset();
     }
 
-    private static class RandomAdmissibleNodeSelectionStrategy implements AdmissibleNodeSelectionStrategy {
-
-        @Override
-        public Optional<Node> getAdmissibleNode(PushRelabelMaxFlow pushRelabelMaxFlow, Node n) {
-            return pushRelabelMaxFlow.getSuccessors(n).stream()
-                    .filter(successor -> pushRelabelMaxFlow.isArcAdmissible(n, successor))
-                    .findFirst();
+    private static void restoreValue(Map<Node, Integer> map, Node node, Integer value) {
+        if (value != null) {
+            map.put(node, value);
+        } else {
+            map.remove(node);
         }
     }
 
     public static class State implements Memento {
+        private final PushRelabelMaxFlow originFlow;
         private final FlowNetwork.State flowNetworkState;
-        private final ImmutableMap<Node, Integer> nodeDistanceMap;
-        private final ImmutableMap<Node, Integer> nodeExcessMap;
+        private final UndoLog.Checkpoint distancesCheckpoint;
+        private final UndoLog.Checkpoint excessCheckpoint;
+        private final UndoLog.Checkpoint flowCheckpoint;
 
-        private State(FlowNetwork.State flowNetworkState, ImmutableMap<Node, Integer> nodeDistanceMap, ImmutableMap<Node, Integer> nodeExcessMap) {
+        private State(PushRelabelMaxFlow originFlow, FlowNetwork.State flowNetworkState, UndoLog.Checkpoint distancesCheckpoint,
+                      UndoLog.Checkpoint excessCheckpoint, UndoLog.Checkpoint flowCheckpoint) {
+            this.originFlow = requireNonNull(originFlow);
             this.flowNetworkState = requireNonNull(flowNetworkState);
-            this.nodeDistanceMap = requireNonNull(nodeDistanceMap);
-            this.nodeExcessMap = requireNonNull(nodeExcessMap);
+            this.distancesCheckpoint = requireNonNull(distancesCheckpoint);
+            this.excessCheckpoint = requireNonNull(excessCheckpoint);
+            this.flowCheckpoint = requireNonNull(flowCheckpoint);
+        }
+
+        /**
+         * The state can't be restored anymore, and the algorithm and the network stop recording changes for it.
+         * States that are not referenced anymore get released when they are garbage collected, releasing them explicitly
+         * stops the recording right away.
+         */
+        public void release() {
+            flowNetworkState.release();
+            originFlow.distancesLog.release(distancesCheckpoint);
+            originFlow.excessLog.release(excessCheckpoint);
+            originFlow.flowLog.release(flowCheckpoint);
         }
     }
 }
@@ -0,0 +1,70 @@
+package org.openstructures.flow;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event with the statistics of one phase of {@link PushRelabelMaxFlow}, see {@link PushRelabelListener#jfrEvents()}
+ */
+@Name("org.openstructures.flow.PushRelabelPhase")
+@Label("Push Relabel Phase")
+@Category("Max Flow")
+@Description("Operations done during one phase of the push relabel algorithm")
+class PushRelabelPhaseEvent extends Event {
+    private static final EventType EVENT_TYPE = EventType.getEventType(PushRelabelPhaseEvent.class);
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Phase Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long phaseDuration;
+
+    @Label("Saturating Pushes")
+    long saturatingPushes;
+
+    @Label("Non-saturating Pushes")
+    long nonSaturatingPushes;
+
+    @Label("Discharges")
+    long discharges;
+
+    @Label("Relabels")
+    long relabels;
+
+    @Label("Global Relabels")
+    long globalRelabels;
+
+    @Label("Global Relabel Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long globalRelabelDuration;
+
+    @Label("Gaps")
+    long gaps;
+
+    @Label("Nodes Lifted Above Gaps")
+    long nodesLiftedAboveGaps;
+
+    static void commit(PushRelabelStatistics statistics) {
+        if (!EVENT_TYPE.isEnabled()) {
+            return; // without allocating the event
+        }
+        PushRelabelPhaseEvent event = new PushRelabelPhaseEvent();
+        event.phase = statistics.getPhase().name();
+        event.phaseDuration = statistics.getDurationNanos();
+        event.saturatingPushes = statistics.getSaturatingPushes();
+        event.nonSaturatingPushes = statistics.getNonSaturatingPushes();
+        event.discharges = statistics.getDischarges();
+        event.relabels = statistics.getRelabels();
+        event.globalRelabels = statistics.getGlobalRelabels();
+        event.globalRelabelDuration = statistics.getGlobalRelabelNanos();
+        event.gaps = statistics.getGaps();
+        event.nodesLiftedAboveGaps = statistics.getNodesLiftedAboveGaps();
+        event.commit();
+    }
+}
@@ -0,0 +1,109 @@
+package org.openstructures.flow;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Operations done by {@link PushRelabelMaxFlow} during one phase of the algorithm and the time it took.
+ * Only collected when a {@link PushRelabelListener} is set.
+ */
+public final class PushRelabelStatistics {
+    private final Phase phase;
+    private final long startNanos;
+    private long durationNanos;
+    long saturatingPushes;
+    long nonSaturatingPushes;
+    long discharges;
+    long relabels;
+    long globalRelabels;
+    long globalRelabelNanos;
+    long gaps;
+    long nodesLiftedAboveGaps;
+
+    PushRelabelStatistics(Phase phase) {
+        this.phase = requireNonNull(phase);
+        this.startNanos = System.nanoTime();
+    }
+
+    void finish() {
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Pushes that used up the residual capacity of the arc, including the ones from the source
+     */
+    public long getSaturatingPushes() {
+        return saturatingPushes;
+    }
+
+    /**
+     * Pushes that used up the excess of the node but not the residual capacity of the arc
+     */
+    public long getNonSaturatingPushes() {
+        return nonSaturatingPushes;
+    }
+
+    /**
+     * Number of times an active node was selected
+     */
+    public long getDischarges() {
+        return discharges;
+    }
+
+    public long getRelabels() {
+        return relabels;
+    }
+
+    public long getGlobalRelabels() {
+        return globalRelabels;
+    }
+
+    /**
+     * Time spent recalculating distance labels during global relabels, a part of the phase duration
+     */
+    public long getGlobalRelabelNanos() {
+        return globalRelabelNanos;
+    }
+
+    public long getGaps() {
+        return gaps;
+    }
+
+    public long getNodesLiftedAboveGaps() {
+        return nodesLiftedAboveGaps;
+    }
+
+    @Override
+    public String toString() {
+        return "PushRelabelStatistics{" +
+                "phase=" + phase +
+                ", durationNanos=" + durationNanos +
+                ", saturatingPushes=" + saturatingPushes +
+                ", nonSaturatingPushes=" + nonSaturatingPushes +
+                ", discharges=" + discharges +
+                ", relabels=" + relabels +
+                ", globalRelabels=" + globalRelabels +
+                ", globalRelabelNanos=" + globalRelabelNanos +
+                ", gaps=" + gaps +
+                ", nodesLiftedAboveGaps=" + nodesLiftedAboveGaps +
+                '}';
+    }
+
+    public enum Phase {
+        /**
+         * Calculating distance labels and flooding the source's successors, see {@link PushRelabelMaxFlow#preprocess()}
+         */
+        PREPROCESS,
+        /**
+         * Discharging active nodes until there are none left, or none below the distance limit
+         */
+        DISCHARGE
+    }
+}
@@ -0,0 +1,50 @@
+package org.openstructures.flow;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Arrays used by {@link CompactPushRelabelMaxFlow}, kept apart from the solver so they can be reused for many networks.
+ * They only grow, to fit the largest network solved so far, and their contents don't survive from one solve to the next.
+ * Once the workspace is large enough, creating a solver and solving allocates nothing that depends on the size of the network:
+ * <pre>
+ * PushRelabelWorkspace workspace = new PushRelabelWorkspace(maxNumberOfNodes);
+ * for (CompactFlowNetwork network : networks) {
+ *     CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network, workspace);
+ *     flow.preflowPush();
+ * }
+ * </pre>
+ * Only {@link CompactPushRelabelMaxFlow} uses a workspace, {@link PushRelabelMaxFlow} keeps its state in maps keyed by nodes.
+ * A workspace can only be used by one solver at a time, a solver can't be used anymore once the workspace is given to another one.
+ */
+public class PushRelabelWorkspace {
+    int[] distance = new int[0];
+    int[] excess = new int[0];
+    int[] currentArc = new int[0];
+    int[] bucketFirst = new int[0];
+    int[] nextActive = new int[0];
+    int[] queue = new int[0];
+    int[] labelCount = new int[0];
+
+    public PushRelabelWorkspace() {
+    }
+
+    public PushRelabelWorkspace(int numberOfNodes) {
+        ensureCapacity(numberOfNodes);
+    }
+
+    /**
+     * Grows the arrays to fit networks with the given number of nodes, solvers do it anyway
+     */
+    public void ensureCapacity(int numberOfNodes) {
+        checkArgument(numberOfNodes >= 0);
+        if (numberOfNodes > distance.length) {
+            distance = new int[numberOfNodes];
+            excess = new int[numberOfNodes];
+            currentArc = new int[numberOfNodes];
+            bucketFirst = new int[2 * numberOfNodes];
+            nextActive = new int[numberOfNodes];
+            queue = new int[numberOfNodes];
+            labelCount = new int[numberOfNodes];
+        }
+    }
+}
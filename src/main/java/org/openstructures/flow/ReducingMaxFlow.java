@@ -0,0 +1,324 @@
+package org.openstructures.flow;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Makes the network smaller before solving it with another solver and maps the flow back to the arcs of the original network.
+ * The reduction keeps the maximum flow amount:
+ * <ul>
+ * <li>nodes that can't be reached from the source or can't reach the sink are removed, no flow from the source to the sink
+ * goes through them.</li>
+ * <li>nodes adjacent to a single node are removed, flow could only go there and straight back.</li>
+ * <li>nodes adjacent to exactly two nodes u and w are removed, and arcs (u, w) and (w, u) get the smaller capacity
+ * of the two arcs going through the node in the same direction. Arcs that end up parallel are merged.
+ * Removing a node may make its neighbors adjacent to fewer nodes, so long chains collapse into a single arc.</li>
+ * </ul>
+ * Every arc of the reduced network remembers which arcs of the original network it stands for, so the flow
+ * found by the solver is split between them. The original flow network is not modified.
+ */
+public class ReducingMaxFlow implements MaxFlowSolver {
+    private final FlowNetwork flowNetwork;
+    private final Function<FlowNetwork, ? extends MaxFlowSolver> solverFactory;
+    private final Table<Node, Node, Integer> flowTable = HashBasedTable.create(); // flow of the original arcs
+    private Table<Node, Node, Part> parts;
+    private SetMultimap<Node, Node> predecessors;
+    private FlowNetwork reducedNetwork;
+    private MaxFlowSolver solver;
+
+    /**
+     * Solves the reduced network with {@link PushRelabelMaxFlow}
+     */
+    public ReducingMaxFlow(FlowNetwork flowNetwork) {
+        this(flowNetwork, PushRelabelMaxFlow::new);
+    }
+
+    /**
+     * @param solverFactory creates the solver for the reduced network
+     * @throws IllegalArgumentException if the network has several sources or sinks
+     */
+    public ReducingMaxFlow(FlowNetwork flowNetwork, Function<FlowNetwork, ? extends MaxFlowSolver> solverFactory) {
+        this.flowNetwork = requireNonNull(flowNetwork);
+        flowNetwork.checkSingleSourceAndSink("Network reduction");
+        this.solverFactory = requireNonNull(solverFactory);
+    }
+
+    @Override
+    public void solve() {
+        reduce();
+        solver = solverFactory.apply(reducedNetwork);
+        solver.solve();
+        flowTable.clear();
+        solver.getArcFlows().forEach(arcFlow -> parts.get(arcFlow.getTail(), arcFlow.getHead()).addFlow(arcFlow.getFlow(), flowTable));
+    }
+
+    /**
+     * Network the solver ran on. It's the residual graph once the flow is found, as the solvers leave it.
+     */
+    public FlowNetwork getReducedNetwork() {
+        checkSolved();
+        return reducedNetwork;
+    }
+
+    private void reduce() {
+        final Node s = flowNetwork.getSource();
+        final Node t = flowNetwork.getSink();
+        Set<Node> liveNodes = Sets.intersection(reachableNodes(s, true), reachableNodes(t, false));
+        parts = HashBasedTable.create();
+        predecessors = HashMultimap.create();
+        for (Node tail : liveNodes) {
+            for (Node head : flowNetwork.getSuccessors(tail)) {
+                if (liveNodes.contains(head)) {
+                    addPart(tail, head, new OriginalArc(tail, head, flowNetwork.getArcCapacity(tail, head)));
+                }
+            }
+        }
+        Deque<Node> candidates = new ArrayDeque<>(liveNodes);
+        while (!candidates.isEmpty()) {
+            final Node node = candidates.poll();
+            if (node.equals(s) || node.equals(t)) {
+                continue;
+            }
+            Set<Node> neighbors = Sets.union(parts.row(node).keySet(), predecessors.get(node));
+            if (neighbors.size() == 1) {
+                Node neighbor = neighbors.iterator().next();
+                removeNode(node);
+                candidates.add(neighbor);
+            } else if (neighbors.size() == 2) {
+                Iterator<Node> iterator = neighbors.iterator();
+                Node u = iterator.next();
+                Node w = iterator.next();
+                Part uToNode = parts.get(u, node), nodeToW = parts.get(node, w);
+                Part wToNode = parts.get(w, node), nodeToU = parts.get(node, u);
+                removeNode(node);
+                if (uToNode != null && nodeToW != null) {
+                    addPart(u, w, Series.of(uToNode, nodeToW));
+                }
+                if (wToNode != null && nodeToU != null) {
+                    addPart(w, u, Series.of(wToNode, nodeToU));
+                }
+                candidates.add(u);
+                candidates.add(w);
+            }
+        }
+        reducedNetwork = new FlowNetwork(s, t);
+        parts.cellSet().forEach(arc -> reducedNetwork.setArcCapacity(arc.getValue().capacity, arc.getRowKey(), arc.getColumnKey()));
+    }
+
+    /**
+     * Nodes reachable from the root along the arcs, or against them
+     */
+    private Set<Node> reachableNodes(Node root, boolean alongArcs) {
+        Set<Node> reachable = newHashSet();
+        reachable.add(root);
+        Queue<Node> nodesQueue = new ArrayDeque<>();
+        nodesQueue.add(root);
+        while (!nodesQueue.isEmpty()) {
+            Node node = nodesQueue.poll();
+            for (Node neighbor : alongArcs ? flowNetwork.getSuccessors(node) : flowNetwork.getPredecessors(node)) {
+                if (reachable.add(neighbor)) {
+                    nodesQueue.add(neighbor);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private void addPart(Node tail, Node head, Part part) {
+        Part existingPart = parts.get(tail, head);
+        parts.put(tail, head, existingPart != null ? Parallel.of(existingPart, part) : part);
+        predecessors.put(head, tail);
+    }
+
+    private void removeNode(Node node) {
+        for (Node head : newArrayList(parts.row(node).keySet())) {
+            parts.remove(node, head);
+            predecessors.remove(head, node);
+        }
+        for (Node tail : predecessors.removeAll(node)) {
+            parts.remove(tail, node);
+        }
+    }
+
+    @Override
+    public int getFlowAmount() {
+        checkSolved();
+        return solver.getFlowAmount();
+    }
+
+    /**
+     * Nodes of the original network that can't reach the sink in its residual graph, given the flow mapped back to it
+     */
+    @Override
+    public Set<Node> getMinCutSourceSide() {
+        checkSolved();
+        final Node t = flowNetwork.getSink();
+        Set<Node> sinkSide = newHashSet();
+        sinkSide.add(t);
+        Queue<Node> nodesQueue = new ArrayDeque<>();
+        nodesQueue.add(t);
+        while (!nodesQueue.isEmpty()) {
+            Node head = nodesQueue.poll();
+            for (Node tail : Sets.union(flowNetwork.getPredecessors(head), flowNetwork.getSuccessors(head))) {
+                if (!sinkSide.contains(tail) && getResidualCapacity(tail, head) > 0) {
+                    sinkSide.add(tail);
+                    nodesQueue.add(tail);
+                }
+            }
+        }
+        return Sets.difference(flowNetwork.getNodes(), sinkSide).immutableCopy();
+    }
+
+    private int getResidualCapacity(Node tail, Node head) {
+        return flowNetwork.getArcCapacity(tail, head) - getArcFlow(tail, head) + getArcFlow(head, tail);
+    }
+
+    /**
+     * Flow of the arc of the original network. Only the net flow is counted for antiparallel arcs.
+     */
+    @Override
+    public int getArcFlow(Node tail, Node head) {
+        checkNotNull(tail);
+        checkNotNull(head);
+        checkSolved();
+        return Math.max(getFlow(tail, head) - getFlow(head, tail), 0);
+    }
+
+    private int getFlow(Node tail, Node head) {
+        Integer flow = flowTable.get(tail, head);
+        return flow != null ? flow : 0;
+    }
+
+    @Override
+    public Stream<ArcFlow> getArcFlows() {
+        checkSolved();
+        return flowTable.cellSet().stream()
+                .filter(arc -> getArcFlow(arc.getRowKey(), arc.getColumnKey()) > 0)
+                .map(arc -> new ArcFlow(arc.getRowKey(), arc.getColumnKey(), getArcFlow(arc.getRowKey(), arc.getColumnKey())));
+    }
+
+    private void checkSolved() {
+        checkState(solver != null, "Max flow has not been found yet");
+    }
+
+    /**
+     * Arcs of the original network an arc of the reduced network stands for
+     */
+    private abstract static class Part {
+        final int capacity;
+
+        Part(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * @param flow can't exceed the capacity
+         */
+        abstract void addFlow(int flow, Table<Node, Node, Integer> flowTable);
+    }
+
+    private static class OriginalArc extends Part {
+        private final Node tail, head;
+
+        OriginalArc(Node tail, Node head, int capacity) {
+            super(capacity);
+            this.tail = tail;
+            this.head = head;
+        }
+
+        @Override
+        void addFlow(int flow, Table<Node, Node, Integer> flowTable) {
+            if (flow > 0) {
+                Integer oldFlow = flowTable.get(tail, head);
+                flowTable.put(tail, head, oldFlow != null ? oldFlow + flow : flow);
+            }
+        }
+    }
+
+    /**
+     * Path through removed nodes, all the flow goes through every part
+     */
+    private static class Series extends Part {
+        private final List<Part> parts;
+
+        private Series(List<Part> parts, int capacity) {
+            super(capacity);
+            this.parts = parts;
+        }
+
+        static Series of(Part first, Part second) {
+            return new Series(concat(partsOf(first), partsOf(second)), Math.min(first.capacity, second.capacity));
+        }
+
+        private static List<Part> partsOf(Part part) {
+            return part instanceof Series ? ((Series) part).parts : newArrayList(part);
+        }
+
+        @Override
+        void addFlow(int flow, Table<Node, Node, Integer> flowTable) {
+            for (Part part : parts) {
+                part.addFlow(flow, flowTable);
+            }
+        }
+    }
+
+    /**
+     * Merged parallel arcs, the flow fills up the parts one by one
+     */
+    private static class Parallel extends Part {
+        private final List<Part> parts;
+
+        private Parallel(List<Part> parts, int capacity) {
+            super(capacity);
+            this.parts = parts;
+        }
+
+        static Parallel of(Part first, Part second) {
+            return new Parallel(concat(partsOf(first), partsOf(second)), Math.addExact(first.capacity, second.capacity));
+        }
+
+        private static List<Part> partsOf(Part part) {
+            return part instanceof Parallel ? ((Parallel) part).parts : newArrayList(part);
+        }
+
+        @Override
+        void addFlow(int flow, Table<Node, Node, Integer> flowTable) {
+            for (Part part : parts) {
+                int partFlow = Math.min(flow, part.capacity);
+                part.addFlow(partFlow, flowTable);
+                flow -= partFlow;
+            }
+        }
+    }
+
+    /**
+     * Parts that get combined are not used on their own anymore, so the longer list is reused.
+     * This way a chain of any length is a flat list and building it takes O(n log n) time.
+     */
+    private static List<Part> concat(List<Part> first, List<Part> second) {
+        if (first.size() < second.size()) {
+            second.addAll(first);
+            return second;
+        }
+        first.addAll(second);
+        return first;
+    }
+}
@@ -0,0 +1,76 @@
+package org.openstructures.flow;
+
+import java.time.Duration;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Conditions for stopping {@link PushRelabelMaxFlow} before the maximum flow is found, see {@link SolveStatus} for the outcomes.
+ * Limits are checked between discharges of active nodes, the preprocessing always runs to the end.
+ * Limits are immutable, every {@code with} method returns new limits.
+ */
+public final class SolveLimits {
+    private static final SolveLimits NONE = new SolveLimits(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final int targetFlow;
+    private final long timeBudgetNanos;
+    private final long operationBudget;
+
+    private SolveLimits(int targetFlow, long timeBudgetNanos, long operationBudget) {
+        this.targetFlow = targetFlow;
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.operationBudget = operationBudget;
+    }
+
+    public static SolveLimits none() {
+        return NONE;
+    }
+
+    /**
+     * Stops as soon as the sink has received the given amount of flow. The sink never gives flow back,
+     * so from then on it's known that the maximum flow is at least this large.
+     */
+    public SolveLimits withTargetFlow(int targetFlow) {
+        checkArgument(targetFlow > 0, "Target flow must be greater than 0");
+        return new SolveLimits(targetFlow, timeBudgetNanos, operationBudget);
+    }
+
+    /**
+     * Stops once the given time has passed since the solve was started or resumed
+     */
+    public SolveLimits withTimeBudget(Duration timeBudget) {
+        checkNotNull(timeBudget);
+        checkArgument(!timeBudget.isNegative(), "Time budget can't be negative");
+        return new SolveLimits(targetFlow, timeBudget.toNanos(), operationBudget);
+    }
+
+    /**
+     * Stops once the given number of pushes and relabels have been done since the solve was started or resumed.
+     * Unlike the time budget, the result doesn't depend on the machine.
+     */
+    public SolveLimits withOperationBudget(long operationBudget) {
+        checkArgument(operationBudget >= 0, "Operation budget can't be negative");
+        return new SolveLimits(targetFlow, timeBudgetNanos, operationBudget);
+    }
+
+    int getTargetFlow() {
+        return targetFlow;
+    }
+
+    boolean hasTargetFlow() {
+        return targetFlow != Integer.MAX_VALUE;
+    }
+
+    long getTimeBudgetNanos() {
+        return timeBudgetNanos;
+    }
+
+    boolean hasTimeBudget() {
+        return timeBudgetNanos != Long.MAX_VALUE;
+    }
+
+    long getOperationBudget() {
+        return operationBudget;
+    }
+}
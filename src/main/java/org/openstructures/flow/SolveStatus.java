@@ -0,0 +1,17 @@
+package org.openstructures.flow;
+
+/**
+ * How a solve with {@link SolveLimits} ended. Unless it's {@link #FINISHED}, the algorithm has left a valid preflow
+ * and distance labels behind, so it can be carried on with {@link PushRelabelMaxFlow#resume(SolveLimits)}.
+ */
+public enum SolveStatus {
+    FINISHED,
+    TARGET_FLOW_REACHED,
+    TIME_BUDGET_EXHAUSTED,
+    OPERATION_BUDGET_EXHAUSTED,
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this == FINISHED;
+    }
+}
@@ -0,0 +1,169 @@
+package org.openstructures.flow;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Remembers the values that entries of some key-value structure had at checkpoints, so the structure can be rolled back.
+ * Taking a checkpoint costs O(1) and rolling back costs time proportional to the number of entries changed since.
+ * Changes are grouped into segments, one per checkpoint, and only the first change of an entry within a segment is kept,
+ * so memory is bounded by the number of distinct entries changed rather than the number of changes.
+ * <p>
+ * Only checkpoints that can still be rolled back to are kept. A checkpoint goes away when it's released,
+ * or when nothing refers to it anymore and it gets garbage collected. Its segment is then merged into the one before it,
+ * or dropped if there is none. Nothing is recorded while there are no checkpoints, so changes cost nothing extra
+ * when nobody is going to roll back.
+ */
+class UndoLog<K, V> {
+    private final List<Segment<K, V>> segments = newArrayList(); // of the checkpoints that are still kept, oldest first
+    private final Set<CheckpointReference> checkpointReferences = newHashSet(); // keeps the weak references themselves reachable
+    private final ReferenceQueue<Checkpoint> collectedCheckpoints = new ReferenceQueue<>();
+    private boolean rollingBack;
+
+    /**
+     * Whether changes get recorded, so callers can skip preparing them when nobody is going to roll back
+     */
+    boolean isRecording() {
+        releaseCollectedCheckpoints();
+        return !segments.isEmpty() && !rollingBack;
+    }
+
+    /**
+     * Remembers the value the entry had before the change, unless the entry has already changed since the last checkpoint
+     *
+     * @param oldValue can be null if there was no such entry
+     */
+    void recordChange(K key, V oldValue) {
+        if (isRecording()) {
+            Map<K, V> changes = segments.get(segments.size() - 1).changes;
+            if (!changes.containsKey(key)) {
+                changes.put(key, oldValue);
+            }
+        }
+    }
+
+    /**
+     * If nothing has changed since the last checkpoint, the new one shares its segment
+     */
+    Checkpoint checkpoint() {
+        releaseCollectedCheckpoints();
+        if (segments.isEmpty() || !segments.get(segments.size() - 1).changes.isEmpty()) {
+            segments.add(new Segment<>());
+        }
+        Segment<K, V> segment = segments.get(segments.size() - 1);
+        segment.numberOfCheckpoints++;
+        Checkpoint checkpoint = new Checkpoint(segment);
+        checkpoint.reference = new CheckpointReference(checkpoint, segment, collectedCheckpoints);
+        checkpointReferences.add(checkpoint.reference);
+        return checkpoint;
+    }
+
+    /**
+     * The checkpoint can't be rolled back to anymore. Releasing it more than once does nothing.
+     */
+    void release(Checkpoint checkpoint) {
+        checkNotNull(checkpoint);
+        if (checkpointReferences.remove(checkpoint.reference)) {
+            checkpoint.reference.clear();
+            release(checkpoint.segment);
+        }
+    }
+
+    private void releaseCollectedCheckpoints() {
+        CheckpointReference reference;
+        while ((reference = (CheckpointReference) collectedCheckpoints.poll()) != null) {
+            if (checkpointReferences.remove(reference)) {
+                release(reference.segment);
+            }
+        }
+    }
+
+    /**
+     * Rolling back to the previous checkpoint needs the values the entries had at that checkpoint,
+     * and for entries that changed only after this one these are the values recorded by this one
+     */
+    private void release(Segment<?, ?> segment) {
+        int index = indexOf(segment);
+        if (index < 0 || --segment.numberOfCheckpoints > 0) {
+            return;
+        }
+        Segment<K, V> releasedSegment = segments.remove(index);
+        if (index > 0) {
+            Map<K, V> previousChanges = segments.get(index - 1).changes;
+            releasedSegment.changes.forEach(previousChanges::putIfAbsent);
+        }
+    }
+
+    private int indexOf(Segment<?, ?> segment) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (segments.get(i) == segment) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rolling back is not undone by rolling forward: checkpoints taken after the one we roll back to can't be used anymore,
+     * and rolling back to them fails. The checkpoint itself stays valid, so it's possible to roll back to it again.
+     *
+     * @param restoreValue sets the entry back to the old value, changes it makes are not recorded
+     */
+    void rollback(Checkpoint checkpoint, BiConsumer<K, V> restoreValue) {
+        checkNotNull(checkpoint);
+        checkNotNull(restoreValue);
+        checkArgument(isValid(checkpoint), "State is no longer valid, it has been released or an earlier state has been restored since it was taken");
+        final int index = indexOf(checkpoint.segment);
+        rollingBack = true;
+        try {
+            for (int i = segments.size() - 1; i >= index; i--) {
+                segments.get(i).changes.forEach(restoreValue);
+            }
+        } finally {
+            rollingBack = false;
+        }
+        segments.subList(index + 1, segments.size()).clear();
+        segments.get(index).changes.clear();
+    }
+
+    boolean isValid(Checkpoint checkpoint) {
+        return checkpointReferences.contains(checkpoint.reference) && indexOf(checkpoint.segment) >= 0;
+    }
+
+    static class Checkpoint {
+        private final Segment<?, ?> segment;
+        private CheckpointReference reference;
+
+        private Checkpoint(Segment<?, ?> segment) {
+            this.segment = requireNonNull(segment);
+        }
+    }
+
+    private static class Segment<K, V> {
+        private final Map<K, V> changes = newHashMap();
+        private int numberOfCheckpoints;
+    }
+
+    /**
+     * Gets enqueued once the checkpoint has been garbage collected, and still knows the segment to release
+     */
+    private static class CheckpointReference extends WeakReference<Checkpoint> {
+        private final Segment<?, ?> segment;
+
+        private CheckpointReference(Checkpoint checkpoint, Segment<?, ?> segment, ReferenceQueue<Checkpoint> queue) {
+            super(checkpoint, queue);
+            this.segment = segment;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openstructures.flow.ValueNode.node;
+
+public class ActiveNodeBucketsTest {
+    private final ActiveNodeBuckets activeNodes = new ActiveNodeBuckets();
+
+    @Test
+    public void shouldPollNodesWithHighestDistanceFirst() {
+        // given
+        activeNodes.add(node("A"), 2);
+        activeNodes.add(node("B"), 5);
+        activeNodes.add(node("C"), 0);
+
+        // when and then
+        assertThat(activeNodes.poll()).isEqualTo(node("B"));
+        assertThat(activeNodes.poll()).isEqualTo(node("A"));
+        activeNodes.add(node("D"), 1);
+        assertThat(activeNodes.poll()).isEqualTo(node("D"));
+        assertThat(activeNodes.poll()).isEqualTo(node("C"));
+        assertThat(activeNodes.poll()).isNull();
+    }
+
+    @Test
+    public void shouldClear() {
+        // given
+        activeNodes.add(node("A"), 2);
+        activeNodes.add(node("B"), 3);
+
+        // when
+        activeNodes.clear();
+
+        // then
+        assertThat(activeNodes.poll()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfNodeHasNoDistanceLabel() {
+        // when
+        activeNodes.add(node("A"), -1);
+
+        // then expect exception
+    }
+}
@@ -0,0 +1,100 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+import static org.openstructures.flow.ValueNode.node;
+
+public class BatchMaxFlowTest {
+
+    @Test
+    public void shouldSolveNetworksInParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // given
+            Random random = new Random(18);
+            List<FlowNetwork> flowNetworks = newArrayList();
+            for (int i = 0; i < 200; i++) {
+                flowNetworks.add(randomFlowNetwork(random, 2 + random.nextInt(60), random.nextInt(400)));
+            }
+            List<Integer> expectedFlowAmounts = flowNetworks.stream().map(flowNetwork -> {
+                FlowNetwork.State originalNetwork = flowNetwork.getState();
+                PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+                expectedFlow.preflowPush();
+                flowNetwork.restore(originalNetwork);
+                return expectedFlow.getFlowAmount();
+            }).collect(Collectors.toList());
+            BatchMaxFlow batch = new BatchMaxFlow(executor);
+            batch.setChunkSize(7);
+
+            // when
+            List<BatchMaxFlow.Result> results = batch.solve(flowNetworks);
+
+            // then
+            assertThat(results).extracting(BatchMaxFlow.Result::getFlowAmount).containsExactlyElementsOf(expectedFlowAmounts);
+            for (int i = 0; i < results.size(); i++) {
+                FlowNetwork flowNetwork = flowNetworks.get(i);
+                BatchMaxFlow.Result result = results.get(i);
+                int cutCapacity = 0;
+                for (Node tail : result.getMinCutSourceSide()) {
+                    for (Node head : flowNetwork.getSuccessors(tail)) {
+                        if (!result.getMinCutSourceSide().contains(head)) {
+                            cutCapacity += flowNetwork.getArcCapacity(tail, head);
+                        }
+                    }
+                }
+                assertThat(cutCapacity).isEqualTo(result.getFlowAmount());
+                result.getArcFlows().forEach(arcFlow ->
+                        assertThat(arcFlow.getFlow()).isLessThanOrEqualTo(flowNetwork.getArcCapacity(arcFlow.getTail(), arcFlow.getHead())));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldStreamResultsInOrder() {
+        // given
+        Random random = new Random(19);
+        List<CompactFlowNetwork> networks = newArrayList();
+        List<Integer> expectedFlowAmounts = newArrayList();
+        for (int i = 0; i < 100; i++) {
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(40), random.nextInt(300));
+            networks.add(CompactFlowNetwork.of(flowNetwork));
+            DinicMaxFlow expectedFlow = new DinicMaxFlow(flowNetwork);
+            expectedFlow.solve();
+            expectedFlowAmounts.add(expectedFlow.getFlowAmount());
+        }
+        BatchMaxFlow batch = new BatchMaxFlow();
+
+        // when
+        List<Integer> flowAmounts = batch.streamCompact(networks).map(BatchMaxFlow.Result::getFlowAmount).collect(Collectors.toList());
+
+        // then
+        assertThat(flowAmounts).isEqualTo(expectedFlowAmounts);
+    }
+
+    @Test
+    public void shouldRejectNetworksWithSeveralSourcesBeforeSolvingAny() {
+        // given
+        List<FlowNetwork> flowNetworks = newArrayList(randomFlowNetwork(new Random(3), 10, 30),
+                new FlowNetwork(Set.of(node("s1"), node("s2")), Set.of(node("t"))));
+        BatchMaxFlow batch = new BatchMaxFlow(Runnable::run);
+
+        // when and then
+        assertThatThrownBy(() -> batch.solve(flowNetworks))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("2 sources and 1 sinks");
+        assertThatThrownBy(() -> batch.stream(flowNetworks)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
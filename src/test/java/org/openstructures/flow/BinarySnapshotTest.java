@@ -0,0 +1,164 @@
+package org.openstructures.flow;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+
+public class BinarySnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteAndReadNetwork() throws IOException {
+        Random random = new Random(16);
+        for (int i = 0; i < 10; i++) {
+            // given
+            CompactFlowNetwork network = CompactFlowNetwork.of(randomFlowNetwork(random, 2 + random.nextInt(100), random.nextInt(1000)));
+            new CompactPushRelabelMaxFlow(network).preflowPush();
+            Path path = temporaryFolder.newFile().toPath();
+
+            // when
+            BinarySnapshot.write(network, path);
+            CompactFlowNetwork loadedNetwork = BinarySnapshot.readNetwork(path);
+
+            // then
+            assertThat(loadedNetwork.getNumberOfNodes()).isEqualTo(network.getNumberOfNodes());
+            assertThat(loadedNetwork.getNumberOfArcs()).isEqualTo(network.getNumberOfArcs());
+            assertThat(loadedNetwork.getSource()).isEqualTo(network.getSource());
+            assertThat(loadedNetwork.getSink()).isEqualTo(network.getSink());
+            for (int arc = 0; arc < network.getNumberOfArcs(); arc++) {
+                assertThat(loadedNetwork.getArcHead(arc)).isEqualTo(network.getArcHead(arc));
+                assertThat(loadedNetwork.getReverseArc(arc)).isEqualTo(network.getReverseArc(arc));
+                assertThat(loadedNetwork.getArcCapacity(arc)).isEqualTo(network.getArcCapacity(arc));
+                assertThat(loadedNetwork.getResidualCapacity(arc)).isEqualTo(network.getResidualCapacity(arc));
+            }
+            assertThat(loadedNetwork.getNodesNotReachingSink()).isEqualTo(network.getNodesNotReachingSink());
+        }
+    }
+
+    @Test
+    public void shouldResumeSolve() throws IOException {
+        // given
+        FlowNetwork flowNetwork = randomFlowNetwork(new Random(17), 200, 3000);
+        PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+        expectedFlow.preflowPush();
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(CompactFlowNetwork.of(randomFlowNetwork(new Random(17), 200, 3000)));
+        flow.findMinCut();
+        Path path = temporaryFolder.newFile().toPath();
+        BinarySnapshot.write(flow, path);
+
+        // when
+        CompactPushRelabelMaxFlow loadedFlow = BinarySnapshot.readSolver(path);
+        loadedFlow.convertPreflowToFlow();
+
+        // then
+        assertThat(loadedFlow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+        CompactFlowNetwork network = loadedFlow.getNetwork();
+        for (int node = 0; node < network.getNumberOfNodes(); node++) {
+            assertThat(loadedFlow.getNodeDistance(node)).isGreaterThanOrEqualTo(flow.getNodeDistance(node));
+            if (node != network.getSource() && node != network.getSink()) {
+                assertThat(loadedFlow.getNodeExcess(node)).isZero();
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotReadSolverFromNetworkSnapshot() throws IOException {
+        // given
+        Path path = temporaryFolder.newFile().toPath();
+        BinarySnapshot.write(new CompactFlowNetwork.Builder(2, 0, 1).addArc(1, 0, 1).build(), path);
+
+        // when and then
+        assertThatThrownBy(() -> BinarySnapshot.readSolver(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void shouldRejectOtherFiles() throws IOException {
+        // given
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, new byte[]{1, 2, 3, 4, 5});
+
+        // when and then
+        assertThatThrownBy(() -> BinarySnapshot.readNetwork(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void shouldRejectArcWithoutReverseArc() throws IOException {
+        // given 3 nodes, only arc (1, 0)
+        Path path = snapshot(3, 0, 2, 0, 1, 0, 0, 5, 0, 0);
+
+        // when and then
+        assertThatThrownBy(() -> BinarySnapshot.readNetwork(path)).isInstanceOf(IOException.class)
+                .hasMessageContaining("(1, 0)");
+    }
+
+    @Test
+    public void shouldRejectDuplicateArcs() throws IOException {
+        // given arcs (0, 1), (0, 1)
+        Path path = snapshot(2, 0, 1, 2, 1, 0, 2, 0, 0);
+
+        // when and then
+        assertThatThrownBy(() -> BinarySnapshot.readNetwork(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void shouldRejectSelfLoops() throws IOException {
+        // given arc (0, 0)
+        Path path = snapshot(2, 0, 1, 1, 0, 0);
+
+        // when and then
+        assertThatThrownBy(() -> BinarySnapshot.readNetwork(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void shouldRejectResidualCapacitiesOutOfRange() throws IOException {
+        // given arcs (0, 1) with capacity 5 and (1, 0) with capacity 0, flows are zig-zag encoded
+        Path negativeResidual = snapshot(2, 0, 1, 1, 1, 1, 0, 5, 12, 0, 0, 0);
+        Path residualAboveBothCapacities = snapshot(2, 0, 1, 1, 1, 1, 0, 5, 5, 0, 0, 0);
+
+        // when and then
+        assertThatThrownBy(() -> BinarySnapshot.readNetwork(negativeResidual)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> BinarySnapshot.readNetwork(residualAboveBothCapacities)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void shouldRejectNegativeDistancesAndExcesses() throws IOException {
+        // given arcs (0, 1) with capacity 5 and (1, 0) with capacity 0, followed by the solver state
+        Path negativeDistance = snapshot(2, 0, 1, 1, 1, 1, 0, 5, 0, 0, 0, 1, -1, 0, 0, 0);
+        Path negativeExcess = snapshot(2, 0, 1, 1, 1, 1, 0, 5, 0, 0, 0, 1, 2, -5, 0, 0);
+
+        // when and then
+        assertThat(BinarySnapshot.readNetwork(negativeDistance).getNumberOfArcs()).isEqualTo(2);
+        assertThatThrownBy(() -> BinarySnapshot.readSolver(negativeDistance)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> BinarySnapshot.readSolver(negativeExcess)).isInstanceOf(IOException.class);
+    }
+
+    /**
+     * Writes the header and the given numbers as varints
+     */
+    private Path snapshot(int... numbers) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[]{'M', 'X', 'F', 'L', 1});
+        for (int number : numbers) {
+            while ((number & ~0x7F) != 0) {
+                bytes.write((number & 0x7F) | 0x80);
+                number >>>= 7;
+            }
+            bytes.write(number);
+        }
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, bytes.toByteArray());
+        return path;
+    }
+}
@@ -0,0 +1,161 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openstructures.flow.ValueNode.node;
+
+public class BipartiteMatchingTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+
+    @Test
+    public void shouldFindMaximumMatching() {
+        // given the greedy matching 0-0, 1-1 which has to be augmented along 2-1-1-0-0-2
+        BipartiteMatching matching = new BipartiteMatching(3, 3)
+                .addEdge(0, 0).addEdge(0, 2)
+                .addEdge(1, 1).addEdge(1, 0)
+                .addEdge(2, 1);
+
+        // when
+        int size = matching.solve();
+
+        // then
+        assertThat(size).isEqualTo(3);
+        assertThat(matching.getRightMatch(0)).isEqualTo(2);
+        assertThat(matching.getRightMatch(1)).isEqualTo(0);
+        assertThat(matching.getRightMatch(2)).isEqualTo(1);
+        assertThat(matching.getLeftMatch(1)).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldLeaveVerticesUnmatched() {
+        // given
+        BipartiteMatching matching = new BipartiteMatching(3, 2)
+                .addEdge(0, 0).addEdge(1, 0).addEdge(2, 0);
+
+        // when
+        int size = matching.solve();
+
+        // then
+        assertThat(size).isEqualTo(1);
+        assertThat(matching.getLeftMatch(1)).isEqualTo(-1);
+        assertThat(matching.getMatchingSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFindSameFlowAsPushRelabel() {
+        Random random = new Random(21);
+        for (int i = 0; i < 100; i++) {
+            // given
+            FlowNetwork flowNetwork = randomBipartiteNetwork(random, 1 + random.nextInt(40), 1 + random.nextInt(40));
+            FlowNetwork.State originalNetwork = flowNetwork.getState();
+            MaxFlowSolver expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.solve();
+            flowNetwork.restore(originalNetwork);
+            BipartiteMatchingMaxFlow flow = BipartiteMatchingMaxFlow.of(flowNetwork).orElseThrow();
+
+            // when
+            flow.solve();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(flow.getArcFlows()).hasSize(3 * flow.getFlowAmount());
+            flow.getArcFlows().forEach(arcFlow ->
+                    assertThat(flowNetwork.getArcCapacity(arcFlow.getTail(), arcFlow.getHead())).isPositive());
+            int cutCapacity = 0;
+            for (Node tail : flow.getMinCutSourceSide()) {
+                for (Node head : flowNetwork.getSuccessors(tail)) {
+                    if (!flow.getMinCutSourceSide().contains(head)) {
+                        cutCapacity += flowNetwork.getArcCapacity(tail, head);
+                    }
+                }
+            }
+            assertThat(cutCapacity).isEqualTo(flow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldMapMatchingToNodes() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(1, source, node("L1"));
+        flowNetwork.setArcCapacity(1, source, node("L2"));
+        flowNetwork.setArcCapacity(5, node("L1"), node("R1"));
+        flowNetwork.setArcCapacity(1, node("L2"), node("R1"));
+        flowNetwork.setArcCapacity(1, node("R1"), sink);
+        BipartiteMatchingMaxFlow flow = BipartiteMatchingMaxFlow.of(flowNetwork).orElseThrow();
+
+        // when
+        flow.solve();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(1);
+        Node matchedLeft = flow.getLeftMatch(node("R1"));
+        assertThat(flow.getRightMatch(matchedLeft)).isEqualTo(node("R1"));
+        assertThat(flow.getArcFlow(source, matchedLeft)).isEqualTo(1);
+        assertThat(flow.getArcFlow(matchedLeft, node("R1"))).isEqualTo(1);
+        assertThat(flow.getArcFlow(node("R1"), sink)).isEqualTo(1);
+        assertThat(flow.getMinCutSourceSide()).containsOnly(source, node("L1"), node("L2"), node("R1"));
+    }
+
+    @Test
+    public void shouldNotSolveNetworksOtherThanMatching() {
+        // given
+        FlowNetwork biggerCapacity = new FlowNetwork(source, sink);
+        biggerCapacity.setArcCapacity(2, source, node("L"));
+        biggerCapacity.setArcCapacity(1, node("L"), node("R"));
+        biggerCapacity.setArcCapacity(1, node("R"), sink);
+        FlowNetwork longerPath = new FlowNetwork(source, sink);
+        longerPath.setArcCapacity(1, source, node("L"));
+        longerPath.setArcCapacity(1, node("L"), node("M"));
+        longerPath.setArcCapacity(1, node("M"), node("R"));
+        longerPath.setArcCapacity(1, node("R"), sink);
+        FlowNetwork directArc = new FlowNetwork(source, sink);
+        directArc.setArcCapacity(1, source, sink);
+
+        // when
+        Optional<BipartiteMatchingMaxFlow> biggerCapacityFlow = BipartiteMatchingMaxFlow.of(biggerCapacity);
+        Optional<BipartiteMatchingMaxFlow> longerPathFlow = BipartiteMatchingMaxFlow.of(longerPath);
+        Optional<BipartiteMatchingMaxFlow> directArcFlow = BipartiteMatchingMaxFlow.of(directArc);
+
+        // then
+        assertThat(biggerCapacityFlow).isEmpty();
+        assertThat(longerPathFlow).isEmpty();
+        assertThat(directArcFlow).isEmpty();
+    }
+
+    private FlowNetwork randomBipartiteNetwork(Random random, int numberOfLeftNodes, int numberOfRightNodes) {
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        for (int left = 0; left < numberOfLeftNodes; left++) {
+            flowNetwork.setArcCapacity(1, source, node("L" + left));
+        }
+        for (int right = 0; right < numberOfRightNodes; right++) {
+            flowNetwork.setArcCapacity(1, node("R" + right), sink);
+        }
+        int numberOfEdges = random.nextInt(3 * (numberOfLeftNodes + numberOfRightNodes));
+        for (int i = 0; i < numberOfEdges; i++) {
+            flowNetwork.setArcCapacity(1, node("L" + random.nextInt(numberOfLeftNodes)), node("R" + random.nextInt(numberOfRightNodes)));
+        }
+        return flowNetwork;
+    }
+
+    @Test
+    public void shouldNotRecognizeNetworkWithSeveralSinks() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(Set.of(source), Set.of(sink, node("sink 2")));
+        flowNetwork.setArcCapacity(1, source, node("L"));
+        flowNetwork.setArcCapacity(1, node("L"), node("R"));
+        flowNetwork.setArcCapacity(1, node("R"), sink);
+
+        // when
+        Optional<BipartiteMatchingMaxFlow> flow = BipartiteMatchingMaxFlow.of(flowNetwork);
+
+        // then
+        assertThat(flow).isEmpty();
+    }
+}
@@ -0,0 +1,129 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+import static org.openstructures.flow.ValueNode.node;
+
+public class BoykovKolmogorovMaxFlowTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+    private final Node nodeC = node("C");
+    private final Node nodeD = node("D");
+
+    @Test
+    public void shouldFindMaximumFlow() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(200, source, nodeA);
+        flowNetwork.setArcCapacity(1, source, nodeB);
+        flowNetwork.setArcCapacity(10, nodeA, nodeD);
+        flowNetwork.setArcCapacity(2, nodeA, nodeC);
+        flowNetwork.setArcCapacity(10, nodeB, sink);
+        flowNetwork.setArcCapacity(6, nodeC, nodeB);
+        flowNetwork.setArcCapacity(5, nodeD, nodeC);
+        flowNetwork.setArcCapacity(2, nodeD, sink);
+        MaxFlowSolver flow = new BoykovKolmogorovMaxFlow(flowNetwork);
+
+        // when
+        flow.solve();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(9);
+        assertThat(flow.getArcFlow(nodeB, sink)).isEqualTo(7);
+        assertThat(flow.getMinCutSourceSide()).containsOnly(source, nodeA, nodeC, nodeD);
+        assertThat(flowNetwork.getArcCapacity(nodeB, sink)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldFindSameFlowAsPushRelabel() {
+        Random random = new Random(13);
+        for (int i = 0; i < 30; i++) {
+            // given
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(60), random.nextInt(400));
+            FlowNetwork.State originalNetwork = flowNetwork.getState();
+            MaxFlowSolver expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.solve();
+            flowNetwork.restore(originalNetwork);
+            MaxFlowSolver flow = new BoykovKolmogorovMaxFlow(flowNetwork);
+
+            // when
+            flow.solve();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            Set<Node> sourceSide = flow.getMinCutSourceSide();
+            flowNetwork.restore(originalNetwork);
+            int cutCapacity = 0;
+            for (Node tail : sourceSide) {
+                for (Node head : flowNetwork.getSuccessors(tail)) {
+                    if (!sourceSide.contains(head)) {
+                        cutCapacity += flowNetwork.getArcCapacity(tail, head);
+                    }
+                }
+            }
+            assertThat(cutCapacity).isEqualTo(flow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldSegmentGrid() {
+        Random random = new Random(14);
+        for (int i = 0; i < 5; i++) {
+            // given
+            long seed = random.nextLong();
+            GridNetworkBuilder grid = randomGrid(new Random(seed), 40, 30, 1 + i % 2);
+            CompactPushRelabelMaxFlow expectedFlow = new CompactPushRelabelMaxFlow(randomGrid(new Random(seed), 40, 30, 1 + i % 2).build());
+            expectedFlow.preflowPush();
+            CompactFlowNetwork network = grid.build();
+            BoykovKolmogorovMaxFlow flow = new BoykovKolmogorovMaxFlow(network);
+
+            // when
+            flow.solve();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(flow.getMinCutSourceSide()).contains(network.getNode(grid.getSource()));
+        }
+    }
+
+    private static GridNetworkBuilder randomGrid(Random random, int width, int height, int depth) {
+        GridNetworkBuilder grid = new GridNetworkBuilder(width, height, depth);
+        for (int z = 0; z < depth; z++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int pixel = grid.getPixel(x, y, z);
+                    grid.setTerminalCapacities(pixel, random.nextInt(10), random.nextInt(10));
+                    if (x < width - 1) {
+                        grid.setNeighborCapacities(pixel, 0, random.nextInt(5), random.nextInt(5));
+                    }
+                    if (y < height - 1) {
+                        grid.setNeighborCapacities(pixel, 1, random.nextInt(5), random.nextInt(5));
+                    }
+                    if (z < depth - 1) {
+                        grid.setNeighborCapacities(pixel, 2, random.nextInt(5), random.nextInt(5));
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    public void shouldRejectNetworkWithSeveralSources() {
+        // given
+        FlowNetwork multiSourceNetwork = new FlowNetwork(Set.of(source, nodeA), Set.of(sink));
+
+        // when and then
+        assertThatThrownBy(() -> new BoykovKolmogorovMaxFlow(multiSourceNetwork))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("single source and a single sink");
+    }
+}
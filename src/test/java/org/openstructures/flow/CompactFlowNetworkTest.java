@@ -0,0 +1,174 @@
+package org.openstructures.flow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.ValueNode.node;
+
+public class CompactFlowNetworkTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+    private final Node nodeC = node("C");
+    private final Node nodeD = node("D");
+
+    private FlowNetwork flowNetwork;
+
+    @Before
+    public void setUp() {
+        flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(3, source, nodeA);
+        flowNetwork.setArcCapacity(2, source, nodeB);
+        flowNetwork.setArcCapacity(2, nodeA, nodeD);
+        flowNetwork.setArcCapacity(3, nodeB, nodeA);
+        flowNetwork.setArcCapacity(3, nodeB, nodeC);
+        flowNetwork.setArcCapacity(3, nodeC, nodeD);
+        flowNetwork.setArcCapacity(2, nodeC, sink);
+        flowNetwork.setArcCapacity(1, nodeD, nodeB);
+        flowNetwork.setArcCapacity(3, nodeD, sink);
+    }
+
+    @Test
+    public void shouldCopyFlowNetwork() {
+        // when
+        CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+
+        // then
+        assertThat(network.getNumberOfNodes()).isEqualTo(6);
+        assertThat(network.getNumberOfArcs()).isEqualTo(18);
+        assertThat(network.getNode(network.getSource())).isEqualTo(source);
+        assertThat(network.getNode(network.getSink())).isEqualTo(sink);
+        assertThat(network.getResidualCapacity(source, nodeA)).isEqualTo(3);
+        assertThat(network.getResidualCapacity(nodeA, source)).isZero();
+        assertThat(network.getResidualCapacity(nodeB, nodeC)).isEqualTo(3);
+        assertThat(network.getResidualCapacity(nodeD, nodeB)).isEqualTo(1);
+        assertThat(network.getResidualCapacity(nodeB, nodeD)).isZero();
+        assertThat(network.getResidualCapacity(nodeA, nodeC)).isZero();
+    }
+
+    @Test
+    public void shouldPairArcsWithReverseArcs() {
+        // given
+        CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+        int a = network.getNodeId(nodeA);
+        int d = network.getNodeId(nodeD);
+
+        // when
+        int arc = network.getArc(a, d);
+        int reverseArc = network.getReverseArc(arc);
+
+        // then
+        assertThat(network.getArcHead(arc)).isEqualTo(d);
+        assertThat(network.getArcHead(reverseArc)).isEqualTo(a);
+        assertThat(network.getReverseArc(reverseArc)).isEqualTo(arc);
+        assertThat(network.getArc(d, a)).isEqualTo(reverseArc);
+    }
+
+    @Test
+    public void shouldSortArcsByHead() {
+        // given
+        CompactFlowNetwork network = new CompactFlowNetwork.Builder(5, 0, 4)
+                .addArc(1, 2, 4)
+                .addArc(1, 2, 0)
+                .addArc(1, 3, 2)
+                .addArc(1, 2, 1)
+                .addArc(1, 0, 2)
+                .build();
+
+        // when and then
+        assertThat(network.getLastArc(2) - network.getFirstArc(2)).isEqualTo(4);
+        for (int arc = network.getFirstArc(2) + 1; arc < network.getLastArc(2); arc++) {
+            assertThat(network.getArcHead(arc)).isGreaterThan(network.getArcHead(arc - 1));
+        }
+    }
+
+    @Test
+    public void shouldMergeParallelAndAntiparallelArcs() {
+        // given
+        CompactFlowNetwork network = new CompactFlowNetwork.Builder(3, 0, 2)
+                .addArc(2, 0, 1)
+                .addArc(3, 0, 1)
+                .addArc(4, 1, 0)
+                .addArc(0, 1, 2)
+                .addArc(1, 1, 2)
+                .build();
+
+        // when
+        int arc = network.getArc(0, 1);
+
+        // then
+        assertThat(network.getNumberOfArcs()).isEqualTo(4);
+        assertThat(network.getArcCapacity(arc)).isEqualTo(5);
+        assertThat(network.getArcCapacity(network.getReverseArc(arc))).isEqualTo(4);
+        assertThat(network.getArc(0, 2)).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldPushFlow() {
+        // given
+        CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+        int arc = network.getArc(network.getNodeId(nodeB), network.getNodeId(nodeA));
+
+        // when
+        network.pushFlow(2, arc);
+
+        // then
+        assertThat(network.getResidualCapacity(nodeB, nodeA)).isEqualTo(1);
+        assertThat(network.getResidualCapacity(nodeA, nodeB)).isEqualTo(2);
+        assertThat(network.getArcCapacity(arc)).isEqualTo(3);
+        assertThat(flowNetwork.getArcCapacity(nodeB, nodeA)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldResetResidualCapacities() {
+        // given
+        CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+        network.pushFlow(2, network.getArc(network.getNodeId(nodeB), network.getNodeId(nodeA)));
+
+        // when
+        network.resetResidualCapacities();
+
+        // then
+        assertThat(network.getResidualCapacity(nodeB, nodeA)).isEqualTo(3);
+        assertThat(network.getResidualCapacity(nodeA, nodeB)).isZero();
+        assertThat(network.getArcsWithFlow()).isEmpty();
+    }
+
+    @Test
+    public void shouldMapNodeIdsToValueNodesIfBuiltFromIds() {
+        // given
+        CompactFlowNetwork network = new CompactFlowNetwork.Builder(3, 0, 2).addArc(1, 0, 1).build();
+
+        // when and then
+        assertThat(network.getNode(1)).isEqualTo(node(1));
+        assertThat(network.getNodeId(node(2))).isEqualTo(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfNodeDoesNotBelongToNetwork() {
+        // given
+        CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+
+        // when
+        network.getNodeId(node("F"));
+
+        // then expect exception
+    }
+
+    @Test
+    public void shouldRejectNetworkWithSeveralSources() {
+        // given
+        FlowNetwork multiSourceNetwork = new FlowNetwork(Set.of(source, nodeA), Set.of(sink));
+        multiSourceNetwork.setArcCapacity(1, source, sink);
+
+        // when and then
+        assertThatThrownBy(() -> CompactFlowNetwork.of(multiSourceNetwork))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("2 sources and 1 sinks");
+    }
+}
@@ -0,0 +1,249 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.ValueNode.node;
+
+public class CompactPushRelabelMaxFlowTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+    private final Node nodeC = node("C");
+    private final Node nodeD = node("D");
+
+    /**
+     * The example for this test is taken from chapter 7.6 of Network Flows Theory, Algorithms, and Applications by Ravindra K. Ahuja
+     */
+    @Test
+    public void shouldFindMaximumFlow() {
+        // given
+        CompactFlowNetwork network = new CompactFlowNetwork.Builder(4, 0, 3)
+                .addArc(2, 0, 1)
+                .addArc(4, 0, 2)
+                .addArc(3, 1, 2)
+                .addArc(5, 2, 3)
+                .addArc(1, 1, 3)
+                .build();
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+
+        // when
+        flow.preflowPush();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldFindMaximumFlow2() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(200, source, nodeA);
+        flowNetwork.setArcCapacity(1, source, nodeB);
+        flowNetwork.setArcCapacity(10, nodeA, nodeD);
+        flowNetwork.setArcCapacity(2, nodeA, nodeC);
+        flowNetwork.setArcCapacity(10, nodeB, sink);
+        flowNetwork.setArcCapacity(6, nodeC, nodeB);
+        flowNetwork.setArcCapacity(5, nodeD, nodeC);
+        flowNetwork.setArcCapacity(2, nodeD, sink);
+        CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+
+        // when
+        flow.preflowPush();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(9);
+        assertThat(network.getResidualCapacity(nodeB, sink)).isEqualTo(3);
+        assertThat(network.getResidualCapacity(nodeD, sink)).isZero();
+        assertThat(flow.getNodeExcess(network.getNodeId(nodeA))).isZero();
+
+        // and
+        assertThat(network.getArcFlow(nodeB, sink)).isEqualTo(7);
+        assertThat(network.getArcFlow(sink, nodeB)).isZero();
+        assertThat(network.getArcFlow(source, nodeA) + network.getArcFlow(source, nodeB)).isEqualTo(9);
+        assertThat(network.getArcFlow(nodeA, nodeC) + network.getArcFlow(nodeA, nodeD)).isEqualTo(network.getArcFlow(source, nodeA));
+        assertThat(network.getArcsWithFlow().map(network::getArcHead)).doesNotContain(network.getSource());
+    }
+
+    @Test
+    public void shouldPreprocess() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(3, source, nodeA);
+        flowNetwork.setArcCapacity(2, source, nodeB);
+        flowNetwork.setArcCapacity(2, nodeA, nodeD);
+        flowNetwork.setArcCapacity(3, nodeB, nodeA);
+        flowNetwork.setArcCapacity(2, nodeB, nodeC);
+        flowNetwork.setArcCapacity(3, nodeC, nodeD);
+        flowNetwork.setArcCapacity(2, nodeC, sink);
+        flowNetwork.setArcCapacity(1, nodeD, nodeB);
+        flowNetwork.setArcCapacity(3, nodeD, sink);
+        CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+
+        // when
+        flow.preprocess();
+
+        // then
+        assertThat(network.getResidualCapacity(source, nodeA)).isZero();
+        assertThat(network.getResidualCapacity(nodeA, source)).isEqualTo(3);
+        assertThat(flow.getNodeExcess(network.getNodeId(nodeA))).isEqualTo(3);
+        assertThat(flow.getNodeExcess(network.getNodeId(nodeB))).isEqualTo(2);
+
+        // and
+        assertThat(flow.getNodeDistance(network.getNodeId(sink))).isZero();
+        assertThat(flow.getNodeDistance(network.getNodeId(source))).isEqualTo(6);
+        assertThat(flow.getNodeDistance(network.getNodeId(nodeC))).isEqualTo(1);
+        assertThat(flow.getNodeDistance(network.getNodeId(nodeD))).isEqualTo(1);
+        assertThat(flow.getNodeDistance(network.getNodeId(nodeA))).isEqualTo(2);
+        assertThat(flow.getNodeDistance(network.getNodeId(nodeB))).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFindSameFlowAsPushRelabelMaxFlow() {
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(30), random.nextInt(150));
+            CompactPushRelabelMaxFlow compactFlow = new CompactPushRelabelMaxFlow(CompactFlowNetwork.of(flowNetwork));
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+
+            // when
+            compactFlow.preflowPush();
+            flow.preflowPush();
+
+            // then
+            assertThat(compactFlow.getFlowAmount()).isEqualTo(flow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldFindMinCutAndConvertPreflowToFlow() {
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(30), random.nextInt(150));
+            CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+            CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.preflowPush();
+
+            // when
+            flow.findMinCut();
+            BitSet sourceSide = flow.getMinCutSourceSide();
+
+            // then
+            int cutCapacity = 0;
+            for (int node = sourceSide.nextSetBit(0); node >= 0; node = sourceSide.nextSetBit(node + 1)) {
+                for (int arc = network.getFirstArc(node); arc < network.getLastArc(node); arc++) {
+                    if (!sourceSide.get(network.getArcHead(arc))) {
+                        cutCapacity += network.getArcCapacity(arc);
+                    }
+                }
+            }
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(cutCapacity).isEqualTo(flow.getFlowAmount());
+
+            // and when
+            flow.convertPreflowToFlow();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            for (int node = 0; node < network.getNumberOfNodes(); node++) {
+                if (node != network.getSource() && node != network.getSink()) {
+                    assertThat(flow.getNodeExcess(node)).isZero();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldReuseWorkspace() {
+        Random random = new Random(20);
+        PushRelabelWorkspace workspace = new PushRelabelWorkspace(50);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(100), random.nextInt(600));
+            CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.preflowPush();
+
+            // when
+            CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network, workspace);
+            flow.preflowPush();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+
+            // and when solved again
+            network.resetResidualCapacities();
+            flow = new CompactPushRelabelMaxFlow(network, workspace);
+            flow.findMinCut();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldFindSameFlowWithAndWithoutGlobalAndGapRelabeling() {
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(100), random.nextInt(600));
+            CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.preflowPush();
+
+            for (double frequency : new double[]{0, 0.1, 1}) {
+                for (boolean gapRelabeling : new boolean[]{false, true}) {
+                    network.resetResidualCapacities();
+                    CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+                    flow.setGlobalRelabelingFrequency(frequency);
+                    flow.setGapRelabeling(gapRelabeling);
+
+                    // when
+                    flow.findMinCut();
+                    int minCutFlowAmount = flow.getFlowAmount();
+                    flow.convertPreflowToFlow();
+
+                    // then
+                    assertThat(minCutFlowAmount).isEqualTo(expectedFlow.getFlowAmount());
+                    assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+                    for (int node = 0; node < network.getNumberOfNodes(); node++) {
+                        if (node != network.getSource() && node != network.getSink()) {
+                            assertThat(flow.getNodeExcess(node)).isZero();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotAcceptNegativeGlobalRelabelingFrequency() {
+        // given
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(CompactFlowNetwork.of(randomFlowNetwork(new Random(1), 5, 10)));
+
+        // when then
+        assertThatThrownBy(() -> flow.setGlobalRelabelingFrequency(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    static FlowNetwork randomFlowNetwork(Random random, int numberOfNodes, int numberOfArcs) {
+        FlowNetwork flowNetwork = new FlowNetwork(node(0), node(numberOfNodes - 1));
+        for (int i = 0; i < numberOfArcs; i++) {
+            int tail = random.nextInt(numberOfNodes);
+            int head = random.nextInt(numberOfNodes);
+            if (tail != head) {
+                flowNetwork.setArcCapacity(1 + random.nextInt(20), node(tail), node(head));
+            }
+        }
+        return flowNetwork;
+    }
+}
@@ -0,0 +1,85 @@
+package org.openstructures.flow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openstructures.flow.ValueNode.node;
+
+public class CurrentArcAdmissibleNodeSelectionStrategyTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+    private final Node nodeC = node("C");
+
+    private final CurrentArcAdmissibleNodeSelectionStrategy strategy = new CurrentArcAdmissibleNodeSelectionStrategy();
+    private FlowNetwork flowNetwork;
+    private PushRelabelMaxFlow pushRelabelMaxFlow;
+
+    @Before
+    public void setUp() {
+        flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(5, source, nodeA);
+        flowNetwork.setArcCapacity(1, nodeA, nodeB);
+        flowNetwork.setArcCapacity(1, nodeA, nodeC);
+        flowNetwork.setArcCapacity(1, nodeB, sink);
+        flowNetwork.setArcCapacity(1, nodeC, sink);
+        pushRelabelMaxFlow = new PushRelabelMaxFlow(flowNetwork, strategy);
+        pushRelabelMaxFlow.preprocess();
+    }
+
+    @Test
+    public void shouldFindAdmissibleNodes() {
+        // when
+        Node first = strategy.getAdmissibleNode(pushRelabelMaxFlow, nodeA).orElseThrow();
+        pushRelabelMaxFlow.pushFlow(1, nodeA, first);
+        Node second = strategy.getAdmissibleNode(pushRelabelMaxFlow, nodeA).orElseThrow();
+        pushRelabelMaxFlow.pushFlow(1, nodeA, second);
+
+        // then
+        assertThat(first).isNotEqualTo(second);
+        assertThat(first).isIn(nodeB, nodeC);
+        assertThat(second).isIn(nodeB, nodeC);
+        assertThat(strategy.getAdmissibleNode(pushRelabelMaxFlow, nodeA)).isEmpty();
+    }
+
+    @Test
+    public void shouldNotGoBackUntilNodeIsRelabeled() {
+        // given
+        pushRelabelMaxFlow.pushFlow(1, nodeA, nodeB);
+        pushRelabelMaxFlow.pushFlow(1, nodeA, nodeC);
+        assertThat(strategy.getAdmissibleNode(pushRelabelMaxFlow, nodeA)).isEmpty();
+
+        // when
+        strategy.nodeRelabeled(nodeA);
+
+        // then the only arc left goes back to the source and it's not admissible with the current distance of A
+        assertThat(strategy.getAdmissibleNode(pushRelabelMaxFlow, nodeA)).isEmpty();
+    }
+
+    @Test
+    public void shouldFindAdmissibleNodeOverArcAddedAfterAdjacentNodesWereCopied() {
+        // given
+        pushRelabelMaxFlow.pushFlow(1, nodeA, nodeB);
+        pushRelabelMaxFlow.pushFlow(1, nodeA, nodeC);
+        assertThat(strategy.getAdmissibleNode(pushRelabelMaxFlow, nodeA)).isEmpty();
+
+        // when
+        flowNetwork.setArcCapacity(1, nodeA, sink);
+        pushRelabelMaxFlow.calculateDistances();
+
+        // then
+        assertThat(strategy.getAdmissibleNode(pushRelabelMaxFlow, nodeA)).contains(sink);
+    }
+
+    @Test
+    public void shouldFindMaximumFlow() {
+        // when
+        pushRelabelMaxFlow.preflowPush();
+
+        // then
+        assertThat(pushRelabelMaxFlow.getFlowAmount()).isEqualTo(2);
+        assertThat(pushRelabelMaxFlow.getArcCapacity(source, nodeA)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,115 @@
+package org.openstructures.flow;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.ValueNode.node;
+
+public class DimacsReaderTest {
+    private static final String NETWORK = String.join("\n",
+            "c the example from chapter 7.6 of Network Flows by Ahuja",
+            "p max 4 6",
+            "n 1 s",
+            "n 4 t",
+            "a 1 2 2",
+            "a 1 3 4",
+            "c parallel arcs are merged",
+            "a 1 3 1",
+            "a 2 3 3",
+            "",
+            "a 3 4 5",
+            "a 2 4 1\r",
+            "");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadCompactFlowNetwork() throws IOException {
+        // given
+        Path path = write(NETWORK);
+
+        // when
+        CompactFlowNetwork network = DimacsReader.readCompactFlowNetwork(path);
+
+        // then
+        assertThat(network.getNumberOfNodes()).isEqualTo(4);
+        assertThat(network.getSource()).isZero();
+        assertThat(network.getSink()).isEqualTo(3);
+        assertThat(network.getArcCapacity(network.getArc(0, 2))).isEqualTo(5);
+        assertThat(network.getArcCapacity(network.getArc(1, 3))).isEqualTo(1);
+
+        // and
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+        flow.preflowPush();
+        assertThat(flow.getFlowAmount()).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldReadFlowNetwork() throws IOException {
+        // given
+        Path path = write(NETWORK);
+
+        // when
+        FlowNetwork flowNetwork = DimacsReader.readFlowNetwork(path);
+
+        // then
+        assertThat(flowNetwork.getSource()).isEqualTo(node(0));
+        assertThat(flowNetwork.getSink()).isEqualTo(node(3));
+        assertThat(flowNetwork.getArcCapacity(node(0), node(2))).isEqualTo(5);
+        assertThat(flowNetwork.getSuccessors(node(1))).containsOnly(node(2), node(3));
+    }
+
+    @Test
+    public void shouldReadNumbersSplitBetweenBuffers() throws IOException {
+        // given
+        StringBuilder file = new StringBuilder("p max 3 100000\nn 1 s\nn 3 t\n");
+        for (int i = 0; i < 100000; i++) {
+            file.append("a 1 2 1234\na 2 3 1\n");
+        }
+        Path path = write(file.toString());
+
+        // when
+        CompactFlowNetwork network = DimacsReader.readCompactFlowNetwork(path);
+
+        // then
+        assertThat(network.getArcCapacity(network.getArc(0, 1))).isEqualTo(123400000);
+        assertThat(network.getArcCapacity(network.getArc(1, 2))).isEqualTo(100000);
+    }
+
+    @Test
+    public void shouldRejectMalformedLine() throws IOException {
+        // given
+        Path path = write("p max 4 1\nn 1 s\nn 4 t\na 1 x 2\n");
+
+        // when and then
+        assertThatThrownBy(() -> DimacsReader.readCompactFlowNetwork(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Line 4");
+    }
+
+    @Test
+    public void shouldRejectNodeOutOfRange() throws IOException {
+        // given
+        Path path = write("p max 4 1\nn 1 s\nn 4 t\na 1 5 2\n");
+
+        // when and then
+        assertThatThrownBy(() -> DimacsReader.readCompactFlowNetwork(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("out of range");
+    }
+
+    private Path write(String content) throws IOException {
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+}
@@ -0,0 +1,91 @@
+package org.openstructures.flow;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+import static org.openstructures.flow.ValueNode.node;
+
+public class DimacsWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteNetwork() throws IOException {
+        // given
+        CompactFlowNetwork network = new CompactFlowNetwork.Builder(3, 0, 2)
+                .addArc(5, 0, 1)
+                .addArc(3, 1, 2)
+                .build();
+        Path path = temporaryFolder.newFile().toPath();
+
+        // when
+        DimacsWriter.write(network, path);
+
+        // then
+        assertThat(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII))
+                .isEqualTo("p max 3 2\nn 1 s\nn 3 t\na 1 2 5\na 2 3 3\n");
+    }
+
+    @Test
+    public void shouldWriteResidualGraph() throws IOException {
+        // given
+        CompactFlowNetwork network = new CompactFlowNetwork.Builder(3, 0, 2)
+                .addArc(5, 0, 1)
+                .addArc(3, 1, 2)
+                .build();
+        new CompactPushRelabelMaxFlow(network).preflowPush();
+        Path path = temporaryFolder.newFile().toPath();
+
+        // when
+        DimacsWriter.writeResidualGraph(network, path);
+
+        // then
+        assertThat(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII))
+                .isEqualTo("p max 3 3\nn 1 s\nn 3 t\na 1 2 2\na 2 1 3\na 3 2 3\n");
+    }
+
+    @Test
+    public void shouldReadWrittenNetwork() throws IOException {
+        Random random = new Random(15);
+        for (int i = 0; i < 10; i++) {
+            // given
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(100), random.nextInt(1000));
+            Path path = temporaryFolder.newFile().toPath();
+            DimacsWriter.write(flowNetwork, path);
+
+            // when
+            CompactFlowNetwork network = DimacsReader.readCompactFlowNetwork(path);
+
+            // then
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.preflowPush();
+            CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(network);
+            flow.preflowPush();
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldRejectNetworkWithSeveralSinks() throws IOException {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(Set.of(node("s")), Set.of(node("t1"), node("t2")));
+        Path path = temporaryFolder.newFile().toPath();
+
+        // when and then
+        assertThatThrownBy(() -> DimacsWriter.write(flowNetwork, path))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("DIMACS format");
+    }
+}
@@ -0,0 +1,114 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+import static org.openstructures.flow.ValueNode.node;
+
+public class DinicMaxFlowTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+    private final Node nodeC = node("C");
+    private final Node nodeD = node("D");
+
+    @Test
+    public void shouldFindMaximumFlow() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(200, source, nodeA);
+        flowNetwork.setArcCapacity(1, source, nodeB);
+        flowNetwork.setArcCapacity(10, nodeA, nodeD);
+        flowNetwork.setArcCapacity(2, nodeA, nodeC);
+        flowNetwork.setArcCapacity(10, nodeB, sink);
+        flowNetwork.setArcCapacity(6, nodeC, nodeB);
+        flowNetwork.setArcCapacity(5, nodeD, nodeC);
+        flowNetwork.setArcCapacity(2, nodeD, sink);
+        MaxFlowSolver flow = new DinicMaxFlow(flowNetwork);
+
+        // when
+        flow.solve();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(9);
+        assertThat(flow.getArcFlow(nodeB, sink)).isEqualTo(7);
+        assertThat(flow.getArcFlow(sink, nodeB)).isZero();
+        assertThat(flow.getMinCutSourceSide()).containsOnly(source, nodeA, nodeC, nodeD);
+
+        // and the network is turned into the residual graph
+        assertThat(flowNetwork.getArcCapacity(nodeB, sink)).isEqualTo(3);
+        assertThat(flowNetwork.getArcCapacity(sink, nodeB)).isEqualTo(7);
+        assertThat(flowNetwork.getArcCapacity(nodeD, sink)).isZero();
+    }
+
+    @Test
+    public void shouldFindSameFlowAsPushRelabel() {
+        Random random = new Random(11);
+        for (int i = 0; i < 30; i++) {
+            // given
+            FlowNetwork flowNetwork = randomFlowNetwork(random, 2 + random.nextInt(60), random.nextInt(400));
+            FlowNetwork.State originalNetwork = flowNetwork.getState();
+            MaxFlowSolver expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.solve();
+            flowNetwork.restore(originalNetwork);
+            MaxFlowSolver flow = new DinicMaxFlow(flowNetwork);
+
+            // when
+            flow.solve();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            int cutCapacity = 0;
+            Set<Node> sourceSide = flow.getMinCutSourceSide();
+            flowNetwork.restore(originalNetwork);
+            for (Node tail : sourceSide) {
+                for (Node head : flowNetwork.getSuccessors(tail)) {
+                    if (!sourceSide.contains(head)) {
+                        cutCapacity += flowNetwork.getArcCapacity(tail, head);
+                    }
+                }
+            }
+            assertThat(cutCapacity).isEqualTo(flow.getFlowAmount());
+            flow.getArcFlows().forEach(arcFlow ->
+                    assertThat(arcFlow.getFlow()).isLessThanOrEqualTo(flowNetwork.getArcCapacity(arcFlow.getTail(), arcFlow.getHead())));
+        }
+    }
+
+    @Test
+    public void shouldFindMaximumMatchingInUnitCapacityNetwork() {
+        // given
+        int size = 500;
+        Random random = new Random(12);
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        for (int i = 0; i < size; i++) {
+            flowNetwork.setArcCapacity(1, source, node("L" + i));
+            flowNetwork.setArcCapacity(1, node("R" + i), sink);
+            flowNetwork.setArcCapacity(1, node("L" + i), node("R" + i));
+            flowNetwork.setArcCapacity(1, node("L" + i), node("R" + random.nextInt(size)));
+        }
+        MaxFlowSolver flow = new DinicMaxFlow(flowNetwork);
+
+        // when
+        flow.solve();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(size);
+    }
+
+    @Test
+    public void shouldRejectNetworkWithSeveralSinks() {
+        // given
+        FlowNetwork multiSinkNetwork = new FlowNetwork(Set.of(source), Set.of(sink, nodeA));
+
+        // when and then
+        assertThatThrownBy(() -> new DinicMaxFlow(multiSinkNetwork))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("single source and a single sink");
+    }
+}
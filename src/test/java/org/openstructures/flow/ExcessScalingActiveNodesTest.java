@@ -0,0 +1,77 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openstructures.flow.ValueNode.node;
+
+public class ExcessScalingActiveNodesTest {
+    private final ExcessScalingActiveNodes activeNodes = new ExcessScalingActiveNodes();
+
+    @Test
+    public void shouldPollNodesWithLargeExcessAndLowestDistanceFirst() {
+        // given the scale of 8
+        activeNodes.add(node("A"), 3, 8);
+        activeNodes.add(node("B"), 1, 2);
+        activeNodes.add(node("C"), 2, 5);
+
+        // when and then
+        assertThat(activeNodes.poll()).isEqualTo(node("C"));
+        assertThat(activeNodes.poll()).isEqualTo(node("A"));
+        assertThat(activeNodes.poll()).isEqualTo(node("B")); // once the scale goes down to 2
+        assertThat(activeNodes.poll()).isNull();
+    }
+
+    @Test
+    public void shouldPollNodeOnceItsExcessIsLarge() {
+        // given
+        activeNodes.add(node("A"), 3, 8);
+        activeNodes.add(node("B"), 1, 2);
+
+        // when
+        activeNodes.excessIncreased(node("B"), 6);
+
+        // then
+        assertThat(activeNodes.poll()).isEqualTo(node("B"));
+        assertThat(activeNodes.poll()).isEqualTo(node("A"));
+        assertThat(activeNodes.poll()).isNull();
+    }
+
+    @Test
+    public void shouldRaiseScaleWhenExcessIncreasesAboveIt() {
+        // given the scale of 4
+        activeNodes.add(node("A"), 3, 3);
+
+        // when
+        activeNodes.excessIncreased(node("A"), 10);
+
+        // then
+        assertThat(activeNodes.getPushLimit(10)).isEqualTo(6);
+        assertThat(activeNodes.poll()).isEqualTo(node("A"));
+    }
+
+    @Test
+    public void shouldLimitPushesToScale() {
+        // given
+        activeNodes.add(node("A"), 3, 5);
+
+        // when and then
+        assertThat(activeNodes.getPushLimit(0)).isEqualTo(8);
+        assertThat(activeNodes.getPushLimit(6)).isEqualTo(2);
+        assertThat(activeNodes.getPushLimit(8)).isZero();
+    }
+
+    @Test
+    public void shouldClear() {
+        // given
+        activeNodes.add(node("A"), 2, 7);
+        activeNodes.add(node("B"), 3, 1);
+
+        // when
+        activeNodes.clear();
+
+        // then
+        assertThat(activeNodes.poll()).isNull();
+        assertThat(activeNodes.getPushLimit(0)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,24 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openstructures.flow.ValueNode.node;
+
+public class FifoActiveNodesTest {
+    private final FifoActiveNodes activeNodes = new FifoActiveNodes();
+
+    @Test
+    public void shouldPollNodesInOrderTheyWereAdded() {
+        // given
+        activeNodes.add(node("A"), 2, 1);
+        activeNodes.add(node("B"), 5, 1);
+
+        // when and then
+        assertThat(activeNodes.poll()).isEqualTo(node("A"));
+        activeNodes.add(node("A"), 3, 1);
+        assertThat(activeNodes.poll()).isEqualTo(node("B"));
+        assertThat(activeNodes.poll()).isEqualTo(node("A"));
+        assertThat(activeNodes.poll()).isNull();
+    }
+}
@@ -3,7 +3,10 @@ package org.openstructures.flow;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Set;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.openstructures.flow.ValueNode.node;
 
 public class FlowNetworkTest {
@@ -42,6 +45,29 @@ public class FlowNetworkTest {
         assertThat(flowNetwork.getSink()).isEqualTo(sink);
     }
 
+    @Test
+    public void shouldGetSourcesAndSinks() {
+        // given
+        FlowNetwork multiTerminalNetwork = new FlowNetwork(Set.of(source, nodeA), Set.of(sink, nodeB));
+        multiTerminalNetwork.setArcCapacity(1, nodeC, nodeD);
+
+        // when and then
+        assertThat(multiTerminalNetwork.getSources()).containsOnly(source, nodeA);
+        assertThat(multiTerminalNetwork.getSinks()).containsOnly(sink, nodeB);
+        assertThat(multiTerminalNetwork.isSource(nodeA)).isTrue();
+        assertThat(multiTerminalNetwork.isSink(nodeA)).isFalse();
+        assertThat(multiTerminalNetwork.getNodes()).containsOnly(source, sink, nodeA, nodeB, nodeC, nodeD);
+        assertThatThrownBy(multiTerminalNetwork::getSource).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(multiTerminalNetwork::getSink).isInstanceOf(IllegalStateException.class);
+        assertThat(flowNetwork.getSources()).containsOnly(source);
+    }
+
+    @Test
+    public void shouldNotAllowNodeToBeSourceAndSink() {
+        // when and then
+        assertThatThrownBy(() -> new FlowNetwork(Set.of(source, nodeA), Set.of(sink, nodeA))).isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     public void shouldGetPredecessors() {
         // when and then
@@ -132,6 +158,61 @@ public class FlowNetworkTest {
         assertThat(flowNetwork.getArcCapacity(nodeA, nodeC)).isZero();
     }
 
+    @Test
+    public void shouldRestoreNestedStates() {
+        // given
+        FlowNetwork.State firstMemento = flowNetwork.getState();
+        flowNetwork.setArcCapacity(100, source, nodeA);
+        FlowNetwork.State secondMemento = flowNetwork.getState();
+        flowNetwork.setArcCapacity(200, source, nodeA);
+        flowNetwork.setArcCapacity(0, source, nodeB);
+
+        // when
+        flowNetwork.restore(secondMemento);
+
+        // then
+        assertThat(flowNetwork.getArcCapacity(source, nodeA)).isEqualTo(100);
+        assertThat(flowNetwork.getArcCapacity(source, nodeB)).isEqualTo(2);
+
+        // when
+        flowNetwork.setArcCapacity(0, source, nodeB);
+        flowNetwork.restore(firstMemento);
+
+        // then
+        assertThat(flowNetwork.getArcCapacity(source, nodeA)).isEqualTo(3);
+        assertThat(flowNetwork.getArcCapacity(source, nodeB)).isEqualTo(2);
+        assertThat(flowNetwork.getPredecessors(nodeB)).contains(source);
+    }
+
+    @Test
+    public void shouldRestoreSameStateMoreThanOnce() {
+        // given
+        FlowNetwork.State memento = flowNetwork.getState();
+        flowNetwork.setArcCapacity(100, source, nodeA);
+        flowNetwork.restore(memento);
+
+        // when
+        flowNetwork.setArcCapacity(50, source, nodeA);
+        flowNetwork.restore(memento);
+
+        // then
+        assertThat(flowNetwork.getArcCapacity(source, nodeA)).isEqualTo(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfTryingToRestoreStateTakenAfterRestoredOne() {
+        // given
+        FlowNetwork.State firstMemento = flowNetwork.getState();
+        flowNetwork.setArcCapacity(100, source, nodeA);
+        FlowNetwork.State secondMemento = flowNetwork.getState();
+        flowNetwork.restore(firstMemento);
+
+        // when
+        flowNetwork.restore(secondMemento);
+
+        // then expect exception
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldThrowExceptionIfTryingToRestoreWithStateFromAnotherNetwork() {
         // given
@@ -148,4 +229,16 @@ public class FlowNetworkTest {
 
         // then expect exception
     }
+
+    @Test
+    public void shouldTellWhetherNetworkHasSingleSourceAndSink() {
+        // given
+        FlowNetwork multiSourceNetwork = new FlowNetwork(Set.of(source, nodeA), Set.of(sink));
+
+        // when and then
+        assertThat(multiSourceNetwork.hasSingleSource()).isFalse();
+        assertThat(multiSourceNetwork.hasSingleSink()).isTrue();
+        assertThat(flowNetwork.hasSingleSource()).isTrue();
+        assertThat(flowNetwork.hasSingleSink()).isTrue();
+    }
 }
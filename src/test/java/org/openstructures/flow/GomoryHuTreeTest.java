@@ -0,0 +1,157 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.ValueNode.node;
+
+public class GomoryHuTreeTest {
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+    private final Node nodeC = node("C");
+    private final Node nodeD = node("D");
+
+    @Test
+    public void shouldFindMinCutValuesOfAllPairs() {
+        // given two triangles joined by the edge C-D
+        FlowNetwork flowNetwork = new FlowNetwork(nodeA, nodeB);
+        setEdgeCapacity(flowNetwork, 3, nodeA, nodeB);
+        setEdgeCapacity(flowNetwork, 2, nodeB, nodeC);
+        setEdgeCapacity(flowNetwork, 4, nodeA, nodeC);
+        setEdgeCapacity(flowNetwork, 1, nodeC, nodeD);
+        setEdgeCapacity(flowNetwork, 5, nodeD, node("E"));
+        setEdgeCapacity(flowNetwork, 5, node("E"), node("F"));
+        setEdgeCapacity(flowNetwork, 5, nodeD, node("F"));
+        GomoryHuTree tree = new GomoryHuTree(flowNetwork);
+
+        // when
+        tree.build();
+
+        // then
+        assertThat(tree.getMinCutValue(nodeA, nodeB)).isEqualTo(5);
+        assertThat(tree.getMinCutValue(nodeA, nodeC)).isEqualTo(6);
+        assertThat(tree.getMinCutValue(nodeB, nodeC)).isEqualTo(5);
+        assertThat(tree.getMinCutValue(nodeA, node("E"))).isEqualTo(1);
+        assertThat(tree.getMinCutValue(nodeD, node("F"))).isEqualTo(10);
+        assertThat(tree.getMinCutValue(node("F"), nodeD)).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldFindSameCutValuesAsPushRelabel() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Random random = new Random(22);
+            for (int i = 0; i < 30; i++) {
+                // given
+                int numberOfNodes = 2 + random.nextInt(20);
+                FlowNetwork flowNetwork = randomUndirectedNetwork(random, numberOfNodes, random.nextInt(3 * numberOfNodes));
+                GomoryHuTree tree = i % 2 == 0 ? new GomoryHuTree(flowNetwork) : new GomoryHuTree(flowNetwork, executor, 1 + random.nextInt(6));
+
+                // when
+                tree.build();
+
+                // then
+                List<Node> nodes = newArrayList(flowNetwork.getNodes());
+                for (Node node1 : nodes) {
+                    for (Node node2 : nodes) {
+                        if (!node1.equals(node2)) {
+                            assertThat(tree.getMinCutValue(node1, node2)).isEqualTo(maxFlowAmount(flowNetwork, node1, node2));
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReportTreeEdges() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(nodeA, nodeB);
+        setEdgeCapacity(flowNetwork, 3, nodeA, nodeB);
+        setEdgeCapacity(flowNetwork, 2, nodeB, nodeC);
+        GomoryHuTree tree = new GomoryHuTree(flowNetwork);
+
+        // when
+        tree.build();
+
+        // then the tree of a path is the path itself
+        Node root = nodeA;
+        while (tree.getParent(root) != null) {
+            root = tree.getParent(root);
+        }
+        int totalCutValue = 0;
+        for (Node node : flowNetwork.getNodes()) {
+            if (!node.equals(root)) {
+                totalCutValue += tree.getParentCutValue(node);
+            }
+        }
+        assertThat(totalCutValue).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldRejectDirectedNetwork() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(nodeA, nodeB);
+        flowNetwork.setArcCapacity(3, nodeA, nodeB);
+
+        // when, then
+        assertThatThrownBy(() -> new GomoryHuTree(flowNetwork)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void setEdgeCapacity(FlowNetwork flowNetwork, int capacity, Node node1, Node node2) {
+        flowNetwork.setArcCapacity(capacity, node1, node2);
+        flowNetwork.setArcCapacity(capacity, node2, node1);
+    }
+
+    private static int maxFlowAmount(FlowNetwork flowNetwork, Node source, Node sink) {
+        FlowNetwork pairNetwork = new FlowNetwork(source, sink);
+        for (Node tail : flowNetwork.getNodes()) {
+            for (Node head : flowNetwork.getSuccessors(tail)) {
+                pairNetwork.setArcCapacity(flowNetwork.getArcCapacity(tail, head), tail, head);
+            }
+        }
+        MaxFlowSolver flow = new PushRelabelMaxFlow(pairNetwork);
+        flow.solve();
+        return flow.getFlowAmount();
+    }
+
+    private static FlowNetwork randomUndirectedNetwork(Random random, int numberOfNodes, int numberOfEdges) {
+        FlowNetwork flowNetwork = new FlowNetwork(node(0), node(1));
+        for (int i = 0; i < numberOfEdges; i++) {
+            int node1 = random.nextInt(numberOfNodes);
+            int node2 = random.nextInt(numberOfNodes);
+            if (node1 != node2) {
+                setEdgeCapacity(flowNetwork, 1 + random.nextInt(10), node(node1), node(node2));
+            }
+        }
+        return flowNetwork;
+    }
+
+    @Test
+    public void shouldBuildTreeOfNetworkWithSeveralSources() {
+        // given terminals don't matter for the tree
+        FlowNetwork flowNetwork = new FlowNetwork(Set.of(nodeA, nodeB), Set.of(nodeC));
+        flowNetwork.setArcCapacity(3, nodeA, nodeB);
+        flowNetwork.setArcCapacity(3, nodeB, nodeA);
+        flowNetwork.setArcCapacity(2, nodeB, nodeC);
+        flowNetwork.setArcCapacity(2, nodeC, nodeB);
+        GomoryHuTree tree = new GomoryHuTree(flowNetwork);
+
+        // when
+        tree.build();
+
+        // then
+        assertThat(tree.getMinCutValue(nodeA, nodeB)).isEqualTo(3);
+        assertThat(tree.getMinCutValue(nodeA, nodeC)).isEqualTo(2);
+    }
+}
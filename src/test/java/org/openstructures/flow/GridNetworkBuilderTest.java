@@ -0,0 +1,82 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GridNetworkBuilderTest {
+
+    @Test
+    public void shouldBuildGridNetwork() {
+        // given
+        GridNetworkBuilder grid = new GridNetworkBuilder(2, 2);
+        grid.setTerminalCapacities(grid.getPixel(0, 0), 5, 0);
+        grid.setTerminalCapacities(grid.getPixel(1, 1), 0, 7);
+        grid.setNeighborCapacities(grid.getPixel(0, 0), 0, 3, 1);
+        grid.setNeighborCapacities(grid.getPixel(1, 0), 1, 2, 0);
+
+        // when
+        CompactFlowNetwork network = grid.build();
+
+        // then
+        assertThat(network.getNumberOfNodes()).isEqualTo(6);
+        assertThat(network.getSource()).isEqualTo(4);
+        assertThat(network.getSink()).isEqualTo(5);
+        assertThat(network.getNumberOfArcs()).isEqualTo(8);
+        assertThat(network.getResidualCapacity(network.getArc(4, 0))).isEqualTo(5);
+        assertThat(network.getResidualCapacity(network.getArc(0, 4))).isZero();
+        assertThat(network.getResidualCapacity(network.getArc(3, 5))).isEqualTo(7);
+        assertThat(network.getResidualCapacity(network.getArc(0, 1))).isEqualTo(3);
+        assertThat(network.getResidualCapacity(network.getArc(1, 0))).isEqualTo(1);
+        assertThat(network.getResidualCapacity(network.getArc(1, 3))).isEqualTo(2);
+        assertThat(network.getArc(0, 2)).isEqualTo(-1);
+        for (int node = 0; node < network.getNumberOfNodes(); node++) {
+            for (int arc = network.getFirstArc(node); arc < network.getLastArc(node); arc++) {
+                assertThat(network.getArcHead(network.getReverseArc(arc))).isEqualTo(node);
+                if (arc > network.getFirstArc(node)) {
+                    assertThat(network.getArcHead(arc)).isGreaterThan(network.getArcHead(arc - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindMaximumFlowInGrid() {
+        // given
+        GridNetworkBuilder grid = new GridNetworkBuilder(3, 1, 2);
+        for (int x = 0; x < 3; x++) {
+            grid.setTerminalCapacities(grid.getPixel(x, 0, 0), 4, 0);
+            grid.setTerminalCapacities(grid.getPixel(x, 0, 1), 0, 3);
+            grid.setNeighborCapacities(grid.getPixel(x, 0, 0), 2, 2, 0);
+        }
+        CompactPushRelabelMaxFlow flow = new CompactPushRelabelMaxFlow(grid.build());
+
+        // when
+        flow.preflowPush();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotConnectLastPixelToNextOne() {
+        // given
+        GridNetworkBuilder grid = new GridNetworkBuilder(2, 2);
+
+        // when
+        grid.setNeighborCapacities(grid.getPixel(1, 0), 0, 1, 1);
+
+        // then expect exception
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotConnectPixelsOf2DGridAlongZ() {
+        // given
+        GridNetworkBuilder grid = new GridNetworkBuilder(2, 2);
+
+        // when
+        grid.setNeighborCapacities(grid.getPixel(0, 0), 2, 1, 1);
+
+        // then expect exception
+    }
+}
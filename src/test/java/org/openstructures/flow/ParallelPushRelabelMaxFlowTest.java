@@ -0,0 +1,73 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+import static org.openstructures.flow.ValueNode.node;
+
+public class ParallelPushRelabelMaxFlowTest {
+
+    @Test
+    public void shouldFindMaximumFlow() {
+        // given
+        CompactFlowNetwork network = new CompactFlowNetwork.Builder(4, 0, 3)
+                .addArc(2, 0, 1)
+                .addArc(4, 0, 2)
+                .addArc(3, 1, 2)
+                .addArc(5, 2, 3)
+                .addArc(1, 1, 3)
+                .build();
+        ParallelPushRelabelMaxFlow flow = new ParallelPushRelabelMaxFlow(network);
+
+        // when
+        flow.findMinCut();
+
+        // then
+        assertThat(flow.getFlowAmount()).isEqualTo(6);
+        assertThat(flow.getMinCutSourceSide().cardinality()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldFindSameFlowAsSequentialAlgorithm() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(10);
+            for (int i = 0; i < 5; i++) {
+                // given
+                int numberOfNodes = 3000;
+                FlowNetwork flowNetwork = randomFlowNetwork(random, numberOfNodes, 30000);
+                for (int j = 0; j < 1000; j++) {
+                    flowNetwork.setArcCapacity(1 + random.nextInt(50), node(0), node(1 + random.nextInt(numberOfNodes - 2)));
+                }
+                CompactPushRelabelMaxFlow expectedFlow = new CompactPushRelabelMaxFlow(CompactFlowNetwork.of(flowNetwork));
+                expectedFlow.findMinCut();
+                CompactFlowNetwork network = CompactFlowNetwork.of(flowNetwork);
+                ParallelPushRelabelMaxFlow flow = new ParallelPushRelabelMaxFlow(network, pool);
+
+                // when
+                flow.findMinCut();
+
+                // then
+                assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+                BitSet sourceSide = flow.getMinCutSourceSide();
+                int cutCapacity = 0;
+                for (int node = sourceSide.nextSetBit(0); node >= 0; node = sourceSide.nextSetBit(node + 1)) {
+                    for (int arc = network.getFirstArc(node); arc < network.getLastArc(node); arc++) {
+                        if (!sourceSide.get(network.getArcHead(arc))) {
+                            cutCapacity += network.getArcCapacity(arc);
+                        }
+                    }
+                }
+                assertThat(sourceSide.get(network.getSource())).isTrue();
+                assertThat(cutCapacity).isEqualTo(flow.getFlowAmount());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+import static org.openstructures.flow.ValueNode.node;
+
+public class ParametricMaxFlowTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+
+    @Test
+    public void shouldFindBreakpoints() {
+        // given source arcs growing with the parameter and sink arcs shrinking
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(4, nodeA, nodeB);
+        flowNetwork.setArcCapacity(1, source, nodeA);
+        flowNetwork.setArcCapacity(1, nodeB, sink);
+        ParametricMaxFlow flow = new ParametricMaxFlow(flowNetwork, new ParametricMaxFlow.Capacities() {
+            @Override
+            public int getSourceArcCapacity(Node head, double parameter) {
+                return head.equals(nodeA) ? (int) parameter : 0;
+            }
+
+            @Override
+            public int getSinkArcCapacity(Node tail, double parameter) {
+                return tail.equals(nodeB) ? 10 - (int) parameter : 0;
+            }
+        });
+
+        // when
+        List<ParametricMaxFlow.Breakpoint> breakpoints = flow.sweep(0, 1, 2, 3, 4, 5, 6, 7, 8);
+
+        // then the cut goes through the source arc below 4, through (A, B) below 6 and through the sink arc from then on.
+        // At ties the source side is the largest one
+        assertThat(breakpoints).hasSize(3);
+        assertThat(breakpoints.get(0).getParameter()).isEqualTo(0);
+        assertThat(breakpoints.get(0).getMinCutSourceSide()).containsOnly(source);
+        assertThat(breakpoints.get(1).getParameter()).isEqualTo(4);
+        assertThat(breakpoints.get(1).getFlowAmount()).isEqualTo(4);
+        assertThat(breakpoints.get(1).getMinCutSourceSide()).containsOnly(source, nodeA);
+        assertThat(breakpoints.get(2).getParameter()).isEqualTo(6);
+        assertThat(breakpoints.get(2).getFlowAmount()).isEqualTo(4);
+        assertThat(breakpoints.get(2).getMinCutSourceSide()).containsOnly(source, nodeA, nodeB);
+        assertThat(flow.getFlowAmount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFindSameFlowAsSolvingEveryNetworkFromScratch() {
+        Random random = new Random(23);
+        for (int i = 0; i < 50; i++) {
+            // given
+            int numberOfNodes = 3 + random.nextInt(30);
+            FlowNetwork innerNetwork = randomFlowNetwork(random, numberOfNodes, random.nextInt(4 * numberOfNodes));
+            Map<Node, double[]> linearCapacities = newHashMap(); // base and slope of the source arc, then of the sink arc
+            for (Node node : innerNetwork.getNodes()) {
+                linearCapacities.put(node, new double[]{random.nextInt(10), random.nextInt(5), 20 + random.nextInt(20), random.nextInt(5)});
+            }
+            ParametricMaxFlow.Capacities capacities = new ParametricMaxFlow.Capacities() {
+                @Override
+                public int getSourceArcCapacity(Node head, double parameter) {
+                    double[] linear = linearCapacities.get(head);
+                    return (int) (linear[0] + linear[1] * parameter);
+                }
+
+                @Override
+                public int getSinkArcCapacity(Node tail, double parameter) {
+                    double[] linear = linearCapacities.get(tail);
+                    return Math.max(0, (int) (linear[2] - linear[3] * parameter));
+                }
+            };
+            FlowNetwork flowNetwork = networkFor(innerNetwork, capacities, 0);
+            ParametricMaxFlow flow = new ParametricMaxFlow(flowNetwork, capacities);
+
+            Set<Node> previousSourceSide = Set.of();
+            for (double parameter = 0; parameter <= 10; parameter += 0.5) {
+                // when
+                int flowAmount = flow.solve(parameter);
+
+                // then
+                MaxFlowSolver expectedFlow = new PushRelabelMaxFlow(networkFor(innerNetwork, capacities, parameter));
+                expectedFlow.solve();
+                assertThat(flowAmount).isEqualTo(expectedFlow.getFlowAmount());
+                assertThat(flow.getMinCutSourceSide()).containsAll(previousSourceSide);
+                previousSourceSide = flow.getMinCutSourceSide();
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotSolveForSmallerParameter() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(4, nodeA, nodeB);
+        ParametricMaxFlow flow = new ParametricMaxFlow(flowNetwork, new ParametricMaxFlow.Capacities() {
+            @Override
+            public int getSourceArcCapacity(Node head, double parameter) {
+                return 1;
+            }
+
+            @Override
+            public int getSinkArcCapacity(Node tail, double parameter) {
+                return 1;
+            }
+        });
+        flow.solve(2);
+
+        // when, then
+        assertThatThrownBy(() -> flow.solve(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Copy of the inner network, source 0 and sink n - 1 of which get the source and sink arcs
+     */
+    private static FlowNetwork networkFor(FlowNetwork innerNetwork, ParametricMaxFlow.Capacities capacities, double parameter) {
+        FlowNetwork flowNetwork = new FlowNetwork(innerNetwork.getSource(), innerNetwork.getSink());
+        for (Node tail : innerNetwork.getNodes()) {
+            for (Node head : innerNetwork.getSuccessors(tail)) {
+                flowNetwork.setArcCapacity(innerNetwork.getArcCapacity(tail, head), tail, head);
+            }
+        }
+        for (Node node : innerNetwork.getNodes()) {
+            if (!node.equals(innerNetwork.getSource()) && !node.equals(innerNetwork.getSink())) {
+                flowNetwork.setArcCapacity(capacities.getSourceArcCapacity(node, parameter), innerNetwork.getSource(), node);
+                flowNetwork.setArcCapacity(capacities.getSinkArcCapacity(node, parameter), node, innerNetwork.getSink());
+            }
+        }
+        return flowNetwork;
+    }
+
+    @Test
+    public void shouldRejectNetworkWithSeveralSinks() {
+        // given
+        FlowNetwork multiSinkNetwork = new FlowNetwork(Set.of(source), Set.of(sink, nodeA));
+        ParametricMaxFlow.Capacities capacities = new ParametricMaxFlow.Capacities() {
+            @Override
+            public int getSourceArcCapacity(Node head, double parameter) {
+                return 0;
+            }
+
+            @Override
+            public int getSinkArcCapacity(Node tail, double parameter) {
+                return 0;
+            }
+        };
+
+        // when and then
+        assertThatThrownBy(() -> new ParametricMaxFlow(multiSinkNetwork, capacities))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("single source and a single sink");
+    }
+}
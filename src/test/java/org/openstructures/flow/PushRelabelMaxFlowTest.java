@@ -1,12 +1,30 @@
 package org.openstructures.flow;
 
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.openstructures.flow.ValueNode.node;
 
 public class PushRelabelMaxFlowTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private PushRelabelMaxFlow pushRelabelMaxFlow;
     private final Node source = node("source");
     private final Node sink = node("sink");
@@ -237,4 +255,637 @@ public class PushRelabelMaxFlowTest {
         assertThat(pushRelabelMaxFlow.getNodeExcess(nodeA)).isEqualTo(2); // before saving to memento
         assertThat(pushRelabelMaxFlow.getNodeExcess(nodeD)).isZero();
     }
+
+    @Test
+    public void shouldRestoreStateTakenBeforeSolving() {
+        // given
+        pushRelabelMaxFlow.preflowPush();
+        int flowAmount = pushRelabelMaxFlow.getFlowAmount();
+        int sourceToNodeAFlow = pushRelabelMaxFlow.getArcFlow(source, nodeA);
+        PushRelabelMaxFlow.State solvedMemento = pushRelabelMaxFlow.getState();
+        Table<Node, Node, Integer> capacityChanges = HashBasedTable.create();
+        capacityChanges.put(source, nodeA, -3);
+        pushRelabelMaxFlow.changeArcCapacities(capacityChanges);
+
+        // when
+        pushRelabelMaxFlow.restore(solvedMemento);
+
+        // then
+        assertThat(pushRelabelMaxFlow.getFlowAmount()).isEqualTo(flowAmount);
+        assertThat(pushRelabelMaxFlow.getArcFlow(source, nodeA)).isEqualTo(sourceToNodeAFlow);
+        assertThat(pushRelabelMaxFlow.getActiveNodes()).isEmpty();
+
+        // and
+        assertThat(pushRelabelMaxFlow.changeArcCapacities(capacityChanges)).isLessThan(flowAmount);
+        pushRelabelMaxFlow.restore(solvedMemento);
+        assertThat(pushRelabelMaxFlow.getFlowAmount()).isEqualTo(flowAmount);
+    }
+
+    @Test
+    public void shouldLabelNodesThatCanOnlyReachSourceWithDistanceToSourcePlusNumberOfNodes() {
+        // given
+        pushRelabelMaxFlow.pushFlow(2, source, nodeB);
+        pushRelabelMaxFlow.pushFlow(2, nodeB, nodeC);
+        pushRelabelMaxFlow.pushFlow(2, nodeC, sink);
+        flowNetwork.setArcCapacity(0, nodeC, nodeD);
+        flowNetwork.setArcCapacity(0, nodeB, nodeA);
+
+        // when
+        pushRelabelMaxFlow.calculateDistances();
+
+        // then
+        assertThat(pushRelabelMaxFlow.getNodeDistance(nodeB)).isEqualTo(7);
+        assertThat(pushRelabelMaxFlow.getNodeDistance(nodeC)).isEqualTo(8);
+        assertThat(pushRelabelMaxFlow.getNodeDistance(nodeA)).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCalculateDistancesOfLongPath() {
+        // given
+        int length = 100_000;
+        FlowNetwork flowNetwork = new FlowNetwork(node(0), node(length));
+        for (int i = 0; i < length; i++) {
+            flowNetwork.setArcCapacity(1, node(i), node(i + 1));
+        }
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+
+        // when
+        flow.calculateDistances();
+
+        // then
+        assertThat(flow.getNodeDistance(node(1))).isEqualTo(length - 1);
+    }
+
+    @Test
+    public void shouldFindMaximumFlowWithGlobalRelabeling() {
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, 2 + random.nextInt(30), random.nextInt(150));
+            CompactPushRelabelMaxFlow expectedFlow = new CompactPushRelabelMaxFlow(CompactFlowNetwork.of(flowNetwork));
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+            flow.setGlobalRelabelingFrequency(0.5);
+
+            // when
+            expectedFlow.preflowPush();
+            flow.preflowPush();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(flow.getActiveNodes()).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldFindMaximumFlowWithGapRelabeling() {
+        Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, 2 + random.nextInt(30), random.nextInt(150));
+            CompactPushRelabelMaxFlow expectedFlow = new CompactPushRelabelMaxFlow(CompactFlowNetwork.of(flowNetwork));
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+            flow.setGapRelabeling(true);
+            flow.setGlobalRelabelingFrequency(i % 2);
+
+            // when
+            expectedFlow.preflowPush();
+            flow.preflowPush();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(flow.getActiveNodes()).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldLiftNodesAboveGap() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(2, source, nodeA);
+        flowNetwork.setArcCapacity(2, nodeA, nodeB);
+        flowNetwork.setArcCapacity(1, nodeB, nodeC);
+        flowNetwork.setArcCapacity(1, nodeC, sink);
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setGapRelabeling(true);
+
+        // when
+        flow.preflowPush();
+
+        // then the only node left at distance 2 got relabeled, so both A and B were cut off from the sink
+        assertThat(flow.getFlowAmount()).isEqualTo(1);
+        assertThat(flow.getNodeDistance(nodeA)).isGreaterThan(5);
+        assertThat(flow.getNodeDistance(nodeB)).isGreaterThan(5);
+        assertThat(flow.getArcCapacity(nodeA, source)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReportStatisticsOfEveryPhase() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(2, source, nodeA);
+        flowNetwork.setArcCapacity(2, nodeA, nodeB);
+        flowNetwork.setArcCapacity(1, nodeB, nodeC);
+        flowNetwork.setArcCapacity(1, nodeC, sink);
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setGapRelabeling(true);
+        List<PushRelabelStatistics> phases = newArrayList();
+        flow.setListener(phases::add);
+
+        // when
+        flow.preflowPush();
+
+        // then
+        assertThat(phases).extracting(PushRelabelStatistics::getPhase)
+                .containsExactly(PushRelabelStatistics.Phase.PREPROCESS, PushRelabelStatistics.Phase.DISCHARGE);
+        PushRelabelStatistics preprocess = phases.get(0);
+        assertThat(preprocess.getSaturatingPushes()).isEqualTo(1);
+        assertThat(preprocess.getRelabels()).isZero();
+        PushRelabelStatistics discharge = phases.get(1);
+        assertThat(discharge.getSaturatingPushes() + discharge.getNonSaturatingPushes()).isGreaterThanOrEqualTo(4);
+        assertThat(discharge.getNonSaturatingPushes()).isGreaterThan(0);
+        assertThat(discharge.getRelabels()).isGreaterThan(0);
+        assertThat(discharge.getDischarges()).isGreaterThan(0);
+        assertThat(discharge.getGaps()).isEqualTo(1);
+        assertThat(discharge.getNodesLiftedAboveGaps()).isEqualTo(2); // A and B
+        assertThat(discharge.getDurationNanos()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldCountGlobalRelabels() {
+        // given
+        FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(new Random(21), 100, 600);
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setGlobalRelabelingFrequency(0.1);
+        List<PushRelabelStatistics> phases = newArrayList();
+        flow.setListener(phases::add);
+
+        // when
+        flow.preflowPush();
+
+        // then
+        PushRelabelStatistics discharge = phases.get(1);
+        assertThat(discharge.getGlobalRelabels()).isEqualTo(discharge.getRelabels() / 10);
+        assertThat(discharge.getGlobalRelabelNanos()).isLessThanOrEqualTo(discharge.getDurationNanos());
+    }
+
+    @Test
+    public void shouldRecordJfrEvents() throws IOException {
+        // given
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setListener(PushRelabelListener.jfrEvents());
+        Path recordingFile = temporaryFolder.newFile().toPath();
+
+        // when
+        try (Recording recording = new Recording()) {
+            recording.enable("org.openstructures.flow.PushRelabelPhase");
+            recording.start();
+            flow.findMinCut();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        // then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertThat(events).extracting(event -> event.getString("phase")).containsExactly("PREPROCESS", "DISCHARGE");
+        assertThat(events.get(0).getLong("saturatingPushes")).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldTellIfFlowReachesTarget() {
+        Random random = new Random(22);
+        for (int i = 0; i < 30; i++) {
+            // given
+            FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, 2 + random.nextInt(60), random.nextInt(400));
+            FlowNetwork.State originalNetwork = flowNetwork.getState();
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.preflowPush();
+            int maximumFlow = expectedFlow.getFlowAmount();
+            flowNetwork.restore(originalNetwork);
+
+            // when
+            boolean reachesMaximumFlow = new PushRelabelMaxFlow(flowNetwork).hasFlowOfAtLeast(Math.max(maximumFlow, 1));
+            flowNetwork.restore(originalNetwork);
+            boolean exceedsMaximumFlow = new PushRelabelMaxFlow(flowNetwork).hasFlowOfAtLeast(maximumFlow + 1);
+
+            // then
+            assertThat(reachesMaximumFlow).isEqualTo(maximumFlow > 0);
+            assertThat(exceedsMaximumFlow).isFalse();
+        }
+    }
+
+    @Test
+    public void shouldStopAtTargetFlowAndResume() {
+        // given
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+
+        // when
+        SolveStatus status = flow.preflowPush(SolveLimits.none().withTargetFlow(1));
+
+        // then
+        assertThat(status).isEqualTo(SolveStatus.TARGET_FLOW_REACHED);
+        assertThat(flow.getFlowAmount()).isBetween(1, 4);
+
+        // and when
+        status = flow.resume(SolveLimits.none());
+
+        // then
+        assertThat(status).isEqualTo(SolveStatus.FINISHED);
+        assertThat(flow.getFlowAmount()).isEqualTo(4);
+        assertThat(flow.getActiveNodes()).isEmpty();
+    }
+
+    @Test
+    public void shouldResumeAfterOperationBudgetIsExhausted() {
+        Random random = new Random(23);
+        for (int i = 0; i < 20; i++) {
+            // given
+            FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, 2 + random.nextInt(60), random.nextInt(400));
+            CompactPushRelabelMaxFlow expectedFlow = new CompactPushRelabelMaxFlow(CompactFlowNetwork.of(flowNetwork));
+            expectedFlow.preflowPush();
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+            SolveLimits limits = SolveLimits.none().withOperationBudget(5);
+
+            // when
+            SolveStatus status = flow.findMinCut(limits);
+            while (status == SolveStatus.OPERATION_BUDGET_EXHAUSTED) {
+                status = flow.resume(limits);
+            }
+
+            // then
+            assertThat(status).isEqualTo(SolveStatus.FINISHED);
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldStopWhenTimeBudgetIsExhausted() {
+        // given
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+
+        // when
+        SolveStatus status = flow.preflowPush(SolveLimits.none().withTimeBudget(Duration.ZERO));
+
+        // then
+        assertThat(status).isEqualTo(SolveStatus.TIME_BUDGET_EXHAUSTED);
+        assertThat(flow.resume(SolveLimits.none().withTimeBudget(Duration.ofMinutes(1)))).isEqualTo(SolveStatus.FINISHED);
+        assertThat(flow.getFlowAmount()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldCancelSolve() {
+        // given
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.setListener(statistics -> flow.cancel());
+
+        // when
+        SolveStatus status = flow.preflowPush(SolveLimits.none());
+
+        // then
+        assertThat(status).isEqualTo(SolveStatus.CANCELLED);
+        assertThat(flow.getFlowAmount()).isZero();
+
+        // and when
+        flow.setListener(null);
+        status = flow.resume(SolveLimits.none());
+
+        // then
+        assertThat(status).isEqualTo(SolveStatus.FINISHED);
+        assertThat(flow.getFlowAmount()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldCancelSolveThatIsCancelledBeforeItStarts() {
+        // given
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.cancel();
+
+        // when
+        SolveStatus status = flow.findMinCut(SolveLimits.none());
+
+        // then
+        assertThat(status).isEqualTo(SolveStatus.CANCELLED);
+
+        // and when the cancel has been used up
+        status = flow.resume(SolveLimits.none());
+
+        // then
+        assertThat(status).isEqualTo(SolveStatus.FINISHED);
+        assertThat(flow.getFlowAmount()).isEqualTo(4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotResumeFinishedSolve() {
+        // given
+        PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+        flow.preflowPush(SolveLimits.none());
+
+        // when
+        flow.resume(SolveLimits.none());
+    }
+
+    @Test
+    public void shouldFindMaximumFlowFromSeveralSourcesToSeveralSinks() {
+        Random random = new Random(24);
+        for (int i = 0; i < 100; i++) {
+            // given
+            int numberOfNodes = 4 + random.nextInt(30);
+            FlowNetwork network = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, numberOfNodes, random.nextInt(4 * numberOfNodes));
+            Set<Node> sources = Set.of(node(0), node(1));
+            Set<Node> sinks = Set.of(node(numberOfNodes - 1), node(numberOfNodes - 2));
+            FlowNetwork multiTerminalNetwork = new FlowNetwork(sources, sinks);
+            FlowNetwork superTerminalNetwork = new FlowNetwork(node("super source"), node("super sink"));
+            for (Node tail : network.getNodes()) {
+                for (Node head : network.getSuccessors(tail)) {
+                    multiTerminalNetwork.setArcCapacity(network.getArcCapacity(tail, head), tail, head);
+                    superTerminalNetwork.setArcCapacity(network.getArcCapacity(tail, head), tail, head);
+                }
+            }
+            sources.forEach(s -> superTerminalNetwork.setArcCapacity(Integer.MAX_VALUE / 4, node("super source"), s));
+            sinks.forEach(t -> superTerminalNetwork.setArcCapacity(Integer.MAX_VALUE / 4, t, node("super sink")));
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(superTerminalNetwork);
+            expectedFlow.preflowPush();
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(multiTerminalNetwork);
+            flow.setGapRelabeling(i % 2 == 0);
+
+            // when
+            flow.preflowPush();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(flow.getActiveNodes()).isEmpty();
+            assertThat(flow.getMinCutSourceSide()).containsAll(sources).doesNotContainAnyElementsOf(sinks);
+            int pathsFlow = flow.decomposeFlow().stream()
+                    .filter(path -> sinks.contains(path.getNodes().get(path.getNodes().size() - 1)))
+                    .mapToInt(FlowPath::getFlow)
+                    .sum();
+            assertThat(pathsFlow).isEqualTo(flow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldFindMaximumFlowFromSourcesFloodingSameNodesWithExcessScaling() {
+        Random random = new Random(26);
+        for (int i = 0; i < 100; i++) {
+            // given nodes next to both sources, so they get flooded twice
+            int numberOfNodes = 4 + random.nextInt(20);
+            FlowNetwork network = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, numberOfNodes, random.nextInt(4 * numberOfNodes));
+            Set<Node> sources = Set.of(node("source 1"), node("source 2"));
+            FlowNetwork multiSourceNetwork = new FlowNetwork(sources, Set.of(node(numberOfNodes - 1)));
+            FlowNetwork superSourceNetwork = new FlowNetwork(node("super source"), node(numberOfNodes - 1));
+            for (Node tail : network.getNodes()) {
+                for (Node head : network.getSuccessors(tail)) {
+                    multiSourceNetwork.setArcCapacity(network.getArcCapacity(tail, head), tail, head);
+                    superSourceNetwork.setArcCapacity(network.getArcCapacity(tail, head), tail, head);
+                }
+            }
+            for (Node s : sources) {
+                superSourceNetwork.setArcCapacity(Integer.MAX_VALUE / 4, node("super source"), s);
+                for (int head = 0; head < numberOfNodes - 1; head++) {
+                    int capacity = 1 + random.nextInt(100);
+                    multiSourceNetwork.setArcCapacity(capacity, s, node(head));
+                    superSourceNetwork.setArcCapacity(capacity, s, node(head));
+                }
+            }
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(superSourceNetwork);
+            expectedFlow.preflowPush();
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(multiSourceNetwork);
+            flow.setActiveNodeSelectionStrategy(ActiveNodeSelectionStrategy.excessScaling());
+            flow.setGapRelabeling(i % 2 == 0);
+
+            // when
+            flow.preflowPush();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(flow.getActiveNodes()).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldFindSameMaximumFlowWithEveryActiveNodeSelectionStrategy() {
+        Random random = new Random(25);
+        for (int i = 0; i < 100; i++) {
+            // given
+            long seed = random.nextLong();
+            int numberOfNodes = 2 + random.nextInt(40);
+            int numberOfArcs = random.nextInt(5 * numberOfNodes);
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(CompactPushRelabelMaxFlowTest.randomFlowNetwork(new Random(seed), numberOfNodes, numberOfArcs));
+            expectedFlow.preflowPush();
+            List<ActiveNodeSelectionStrategy> strategies = List.of(ActiveNodeSelectionStrategy.fifo(), ActiveNodeSelectionStrategy.excessScaling());
+            for (ActiveNodeSelectionStrategy strategy : strategies) {
+                PushRelabelMaxFlow flow = new PushRelabelMaxFlow(CompactPushRelabelMaxFlowTest.randomFlowNetwork(new Random(seed), numberOfNodes, numberOfArcs));
+                flow.setActiveNodeSelectionStrategy(strategy);
+                flow.setGapRelabeling(i % 2 == 0);
+
+                // when
+                flow.findMinCut();
+                int minCutFlowAmount = flow.getFlowAmount();
+                flow.convertPreflowToFlow();
+
+                // then
+                assertThat(minCutFlowAmount).isEqualTo(expectedFlow.getFlowAmount());
+                assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+                assertThat(flow.getActiveNodes()).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindMinCut() {
+        // when
+        pushRelabelMaxFlow.findMinCut();
+
+        // then
+        assertThat(pushRelabelMaxFlow.getFlowAmount()).isEqualTo(4);
+        assertThat(pushRelabelMaxFlow.getMinCutSourceSide()).containsOnly(source, nodeA, nodeB);
+    }
+
+    @Test
+    public void shouldConvertPreflowToFlow() {
+        // given
+        pushRelabelMaxFlow.findMinCut();
+
+        // when
+        pushRelabelMaxFlow.convertPreflowToFlow();
+
+        // then
+        assertThat(pushRelabelMaxFlow.getFlowAmount()).isEqualTo(4);
+        assertThat(pushRelabelMaxFlow.getActiveNodes()).isEmpty();
+        assertThat(pushRelabelMaxFlow.getMinCutSourceSide()).containsOnly(source, nodeA, nodeB);
+    }
+
+    @Test
+    public void shouldFindMinCutWithCapacityEqualToMaximumFlow() {
+        Random random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, 2 + random.nextInt(30), random.nextInt(150));
+            FlowNetwork.State originalNetwork = flowNetwork.getState();
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+            flow.setGapRelabeling(i % 2 == 0);
+
+            // when
+            flow.findMinCut();
+            int flowAmount = flow.getFlowAmount();
+            Set<Node> sourceSide = flow.getMinCutSourceSide();
+
+            // then
+            flowNetwork.restore(originalNetwork);
+            int cutCapacity = 0;
+            for (Node tail : sourceSide) {
+                for (Node head : flowNetwork.getSuccessors(tail)) {
+                    if (!sourceSide.contains(head)) {
+                        cutCapacity += flowNetwork.getArcCapacity(tail, head);
+                    }
+                }
+            }
+            assertThat(sourceSide).contains(flowNetwork.getSource()).doesNotContain(flowNetwork.getSink());
+            assertThat(cutCapacity).isEqualTo(flowAmount);
+        }
+    }
+
+    @Test
+    public void shouldGetArcFlow() {
+        // given
+        pushRelabelMaxFlow.pushFlow(2, source, nodeB);
+        pushRelabelMaxFlow.pushFlow(2, nodeB, nodeA);
+        pushRelabelMaxFlow.pushFlow(2, nodeA, nodeD);
+        pushRelabelMaxFlow.pushFlow(1, nodeD, nodeB);
+
+        // when and then
+        assertThat(pushRelabelMaxFlow.getArcFlow(source, nodeB)).isEqualTo(2);
+        assertThat(pushRelabelMaxFlow.getArcFlow(nodeB, nodeA)).isEqualTo(2);
+        assertThat(pushRelabelMaxFlow.getArcFlow(nodeD, nodeB)).isEqualTo(1);
+        assertThat(pushRelabelMaxFlow.getArcFlow(nodeB, nodeD)).isZero();
+        assertThat(pushRelabelMaxFlow.getArcFlows()).containsOnly(
+                new ArcFlow(source, nodeB, 2), new ArcFlow(nodeB, nodeA, 2), new ArcFlow(nodeA, nodeD, 2), new ArcFlow(nodeD, nodeB, 1));
+    }
+
+    @Test
+    public void shouldCancelFlowGoingInOppositeDirection() {
+        // given
+        pushRelabelMaxFlow.pushFlow(2, source, nodeA);
+        pushRelabelMaxFlow.pushFlow(2, nodeA, nodeD);
+
+        // when
+        pushRelabelMaxFlow.pushFlow(1, nodeD, nodeA);
+
+        // then
+        assertThat(pushRelabelMaxFlow.getArcFlow(nodeA, nodeD)).isEqualTo(1);
+        assertThat(pushRelabelMaxFlow.getArcFlow(nodeD, nodeA)).isZero();
+    }
+
+    @Test
+    public void shouldDecomposeFlow() {
+        // given
+        pushRelabelMaxFlow.pushFlow(2, source, nodeB);
+        pushRelabelMaxFlow.pushFlow(2, nodeB, nodeA);
+        pushRelabelMaxFlow.pushFlow(2, nodeA, nodeD);
+        pushRelabelMaxFlow.pushFlow(1, nodeD, nodeB);
+        pushRelabelMaxFlow.pushFlow(1, nodeD, sink);
+        pushRelabelMaxFlow.pushFlow(1, nodeB, nodeC);
+        pushRelabelMaxFlow.pushFlow(1, nodeC, sink);
+
+        // when
+        List<FlowPath> paths = pushRelabelMaxFlow.decomposeFlow();
+
+        // then
+        assertThat(paths).hasSize(3);
+        assertThat(paths.stream().filter(path -> !path.isCycle()).mapToInt(FlowPath::getFlow).sum()).isEqualTo(2);
+        assertThat(paths.stream().filter(FlowPath::isCycle)).hasSize(1).allSatisfy(cycle -> {
+            assertThat(cycle.getFlow()).isEqualTo(1);
+            assertThat(cycle.getNodes()).hasSize(4).contains(nodeB, nodeA, nodeD);
+        });
+    }
+
+    @Test
+    public void shouldDecomposeMaximumFlowIntoPaths() {
+        Random random = new Random(17);
+        for (int i = 0; i < 50; i++) {
+            // given
+            FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(random, 2 + random.nextInt(30), random.nextInt(150));
+            FlowNetwork.State originalNetwork = flowNetwork.getState();
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+            flow.preflowPush();
+
+            // when
+            List<FlowPath> paths = flow.decomposeFlow();
+
+            // then
+            Node s = flowNetwork.getSource();
+            Node t = flowNetwork.getSink();
+            assertThat(paths.stream().filter(path -> !path.isCycle()).mapToInt(FlowPath::getFlow).sum()).isEqualTo(flow.getFlowAmount());
+            assertThat(paths).filteredOn(path -> !path.isCycle()).allSatisfy(path -> {
+                assertThat(path.getNodes().get(0)).isEqualTo(s);
+                assertThat(path.getNodes().get(path.getNodes().size() - 1)).isEqualTo(t);
+            });
+
+            // and
+            flowNetwork.restore(originalNetwork);
+            flow.getArcFlows().forEach(arcFlow ->
+                    assertThat(arcFlow.getFlow()).isLessThanOrEqualTo(flowNetwork.getArcCapacity(arcFlow.getTail(), arcFlow.getHead())));
+        }
+    }
+
+    @Test
+    public void shouldFindMaximumFlowAfterCapacitiesChange() {
+        // given
+        pushRelabelMaxFlow.preflowPush();
+        Table<Node, Node, Integer> capacityChanges = HashBasedTable.create();
+        capacityChanges.put(nodeA, nodeD, 1);
+        capacityChanges.put(nodeC, sink, -1);
+
+        // when
+        int flowAmount = pushRelabelMaxFlow.changeArcCapacities(capacityChanges);
+
+        // then
+        assertThat(flowAmount).isEqualTo(4);
+        assertThat(pushRelabelMaxFlow.getFlowAmount()).isEqualTo(4);
+        assertThat(pushRelabelMaxFlow.getArcFlow(nodeC, sink)).isEqualTo(1);
+        assertThat(pushRelabelMaxFlow.getArcFlow(nodeA, nodeD)).isEqualTo(3);
+        assertThat(pushRelabelMaxFlow.getActiveNodes()).isEmpty();
+    }
+
+    @Test
+    public void shouldFindSameMaximumFlowAfterCapacitiesChangeAsFromScratch() {
+        Random random = new Random(23);
+        for (int i = 0; i < 100; i++) {
+            // given
+            long seed = random.nextLong();
+            int numberOfNodes = 2 + random.nextInt(20);
+            int numberOfArcs = random.nextInt(100);
+            FlowNetwork flowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(new Random(seed), numberOfNodes, numberOfArcs);
+            FlowNetwork changedFlowNetwork = CompactPushRelabelMaxFlowTest.randomFlowNetwork(new Random(seed), numberOfNodes, numberOfArcs);
+            PushRelabelMaxFlow flow = new PushRelabelMaxFlow(flowNetwork);
+            flow.setGapRelabeling(i % 2 == 0);
+            flow.preflowPush();
+
+            Table<Node, Node, Integer> capacityChanges = HashBasedTable.create();
+            for (int j = 0; j < 1 + random.nextInt(5); j++) {
+                Node tail = node(random.nextInt(numberOfNodes + 1));
+                Node head = node(random.nextInt(numberOfNodes + 1));
+                if (!tail.equals(head) && !capacityChanges.contains(tail, head)) {
+                    int capacity = changedFlowNetwork.getArcCapacity(tail, head);
+                    int capacityChange = random.nextInt(2 * capacity + 10) - capacity;
+                    capacityChanges.put(tail, head, capacityChange);
+                    changedFlowNetwork.setArcCapacity(capacity + capacityChange, tail, head);
+                }
+            }
+            PushRelabelMaxFlow expectedFlow = new PushRelabelMaxFlow(changedFlowNetwork);
+            expectedFlow.preflowPush();
+
+            // when
+            int flowAmount = flow.changeArcCapacities(capacityChanges);
+
+            // then
+            assertThat(flowAmount).isEqualTo(expectedFlow.getFlowAmount());
+            assertThat(flow.getActiveNodes()).isEmpty();
+            for (Node node : changedFlowNetwork.getNodes()) {
+                for (Node successor : changedFlowNetwork.getSuccessors(node)) {
+                    assertThat(flow.getArcFlow(node, successor)).isLessThanOrEqualTo(changedFlowNetwork.getArcCapacity(node, successor)
+                            + expectedFlow.getArcFlow(node, successor) - expectedFlow.getArcFlow(successor, node));
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.openstructures.flow.CompactPushRelabelMaxFlowTest.randomFlowNetwork;
+import static org.openstructures.flow.ValueNode.node;
+
+public class ReducingMaxFlowTest {
+    private final Node source = node("source");
+    private final Node sink = node("sink");
+    private final Node nodeA = node("A");
+    private final Node nodeB = node("B");
+    private final Node nodeC = node("C");
+    private final Node nodeD = node("D");
+    private final Node nodeE = node("E");
+
+    @Test
+    public void shouldCollapseChainAndRemoveDeadNodes() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(5, source, nodeA);
+        flowNetwork.setArcCapacity(3, nodeA, nodeB);
+        flowNetwork.setArcCapacity(4, nodeB, sink);
+        flowNetwork.setArcCapacity(2, source, nodeC); // C can't reach the sink
+        flowNetwork.setArcCapacity(1, nodeD, nodeA);  // D can't be reached from the source
+        flowNetwork.setArcCapacity(2, nodeA, nodeE);  // E can only send the flow back to A
+        flowNetwork.setArcCapacity(2, nodeE, nodeA);
+        ReducingMaxFlow flow = new ReducingMaxFlow(flowNetwork);
+
+        // when
+        flow.solve();
+
+        // then
+        assertThat(flow.getReducedNetwork().getNodes()).containsOnly(source, sink);
+        assertThat(flow.getFlowAmount()).isEqualTo(3);
+        assertThat(flow.getArcFlow(source, nodeA)).isEqualTo(3);
+        assertThat(flow.getArcFlow(nodeA, nodeB)).isEqualTo(3);
+        assertThat(flow.getArcFlow(nodeB, sink)).isEqualTo(3);
+        assertThat(flow.getArcFlows()).hasSize(3);
+        assertThat(flow.getMinCutSourceSide()).containsOnly(source, nodeA, nodeC, nodeD, nodeE);
+
+        // and the original network is not modified
+        assertThat(flowNetwork.getArcCapacity(nodeA, nodeB)).isEqualTo(3);
+        assertThat(flowNetwork.getArcCapacity(nodeB, nodeA)).isZero();
+    }
+
+    @Test
+    public void shouldSplitFlowOfMergedArcs() {
+        // given
+        FlowNetwork flowNetwork = new FlowNetwork(source, sink);
+        flowNetwork.setArcCapacity(10, source, nodeA);
+        flowNetwork.setArcCapacity(10, source, nodeB);
+        flowNetwork.setArcCapacity(2, nodeA, sink);
+        flowNetwork.setArcCapacity(3, nodeA, nodeC);
+        flowNetwork.setArcCapacity(4, nodeC, sink);
+        flowNetwork.setArcCapacity(1, nodeA, nodeB);
+        flowNetwork.setArcCapacity(6, nodeB, sink);
+        ReducingMaxFlow flow = new ReducingMaxFlow(flowNetwork);
+
+        // when
+        flow.solve();
+
+        // then
+        assertThat(flow.getReducedNetwork().getNodes()).containsOnly(source, sink, nodeA, nodeB);
+        assertThat(flow.getFlowAmount()).isEqualTo(11);
+        assertThat(flow.getArcFlow(nodeA, sink) + flow.getArcFlow(nodeA, nodeC)).isEqualTo(5);
+        assertThat(flow.getArcFlow(nodeC, sink)).isEqualTo(flow.getArcFlow(nodeA, nodeC));
+        assertThat(flow.getMinCutSourceSide()).containsOnly(source, nodeA, nodeB);
+    }
+
+    @Test
+    public void shouldFindSameFlowAsWithoutReduction() {
+        Random random = new Random(24);
+        for (int i = 0; i < 100; i++) {
+            // given sparse networks, which have chains
+            int numberOfNodes = 2 + random.nextInt(60);
+            FlowNetwork flowNetwork = randomFlowNetwork(random, numberOfNodes, random.nextInt(2 * numberOfNodes));
+            FlowNetwork.State originalNetwork = flowNetwork.getState();
+            MaxFlowSolver expectedFlow = new PushRelabelMaxFlow(flowNetwork);
+            expectedFlow.solve();
+            flowNetwork.restore(originalNetwork);
+            MaxFlowSolver flow = new ReducingMaxFlow(flowNetwork, i % 2 == 0 ? PushRelabelMaxFlow::new : DinicMaxFlow::new);
+
+            // when
+            flow.solve();
+
+            // then
+            assertThat(flow.getFlowAmount()).isEqualTo(expectedFlow.getFlowAmount());
+            Map<Node, Integer> excess = newHashMap();
+            flow.getArcFlows().forEach(arcFlow -> {
+                assertThat(arcFlow.getFlow()).isLessThanOrEqualTo(flowNetwork.getArcCapacity(arcFlow.getTail(), arcFlow.getHead()));
+                excess.merge(arcFlow.getTail(), -arcFlow.getFlow(), Integer::sum);
+                excess.merge(arcFlow.getHead(), arcFlow.getFlow(), Integer::sum);
+            });
+            excess.forEach((node, nodeExcess) -> {
+                if (!node.equals(flowNetwork.getSource()) && !node.equals(flowNetwork.getSink())) {
+                    assertThat(nodeExcess).isZero();
+                }
+            });
+            assertThat(excess.getOrDefault(flowNetwork.getSink(), 0)).isEqualTo(flow.getFlowAmount());
+            int cutCapacity = 0;
+            Set<Node> sourceSide = flow.getMinCutSourceSide();
+            for (Node tail : sourceSide) {
+                for (Node head : flowNetwork.getSuccessors(tail)) {
+                    if (!sourceSide.contains(head)) {
+                        cutCapacity += flowNetwork.getArcCapacity(tail, head);
+                    }
+                }
+            }
+            assertThat(cutCapacity).isEqualTo(flow.getFlowAmount());
+        }
+    }
+
+    @Test
+    public void shouldCollapseLongChain() {
+        // given
+        int length = 100_000;
+        FlowNetwork flowNetwork = new FlowNetwork(node(0), node(length));
+        for (int i = 0; i < length; i++) {
+            flowNetwork.setArcCapacity(1000 - i % 999, node(i), node(i + 1));
+        }
+        ReducingMaxFlow flow = new ReducingMaxFlow(flowNetwork);
+
+        // when
+        flow.solve();
+
+        // then
+        assertThat(flow.getReducedNetwork().getNumberOfNodes()).isEqualTo(2);
+        assertThat(flow.getFlowAmount()).isEqualTo(2);
+        assertThat(flow.getArcFlow(node(length / 2), node(length / 2 + 1))).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRejectNetworkWithSeveralSources() {
+        // given
+        FlowNetwork multiSourceNetwork = new FlowNetwork(Set.of(source, nodeA), Set.of(sink));
+
+        // when and then
+        assertThatThrownBy(() -> new ReducingMaxFlow(multiSourceNetwork))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("single source and a single sink");
+    }
+}
@@ -0,0 +1,100 @@
+package org.openstructures.flow;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UndoLogTest {
+    private final Map<String, Integer> values = newHashMap();
+    private final UndoLog<String, Integer> undoLog = new UndoLog<>();
+
+    private void set(String key, Integer value) {
+        undoLog.recordChange(key, values.get(key));
+        values.put(key, value);
+    }
+
+    private void rollback(UndoLog.Checkpoint checkpoint) {
+        undoLog.rollback(checkpoint, (key, value) -> {
+            if (value == null) {
+                values.remove(key);
+            } else {
+                values.put(key, value);
+            }
+        });
+    }
+
+    @Test
+    public void shouldStopRecordingWhenCheckpointsAreReleased() {
+        // given
+        assertThat(undoLog.isRecording()).isFalse();
+        UndoLog.Checkpoint checkpoint = undoLog.checkpoint();
+        assertThat(undoLog.isRecording()).isTrue();
+
+        // when
+        undoLog.release(checkpoint);
+
+        // then
+        assertThat(undoLog.isRecording()).isFalse();
+        assertThat(undoLog.isValid(checkpoint)).isFalse();
+    }
+
+    @Test
+    public void shouldRollbackToOlderCheckpointWhenNewerOneIsReleased() {
+        // given
+        set("A", 1);
+        UndoLog.Checkpoint older = undoLog.checkpoint();
+        set("A", 2);
+        UndoLog.Checkpoint newer = undoLog.checkpoint();
+        set("A", 3);
+        set("B", 1);
+        undoLog.checkpoint();
+        set("B", 2);
+
+        // when
+        undoLog.release(newer);
+        rollback(older);
+
+        // then
+        assertThat(values).containsOnly(Map.entry("A", 1));
+    }
+
+    @Test
+    public void shouldNotRollbackToNewerCheckpointAfterRollingBackToOlderOne() {
+        // given
+        UndoLog.Checkpoint older = undoLog.checkpoint();
+        set("A", 1);
+        UndoLog.Checkpoint newer = undoLog.checkpoint();
+        set("A", 2);
+
+        // when
+        rollback(older);
+
+        // then
+        assertThat(values).isEmpty();
+        assertThat(undoLog.isValid(older)).isTrue();
+        assertThat(undoLog.isValid(newer)).isFalse();
+        assertThatThrownBy(() -> rollback(newer)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldKeepRecordingUntilAllCheckpointsWithoutChangesBetweenThemAreReleased() {
+        // given
+        UndoLog.Checkpoint first = undoLog.checkpoint();
+        UndoLog.Checkpoint second = undoLog.checkpoint();
+        set("A", 1);
+
+        // when
+        undoLog.release(first);
+
+        // then
+        assertThat(undoLog.isRecording()).isTrue();
+        rollback(second);
+        assertThat(values).isEmpty();
+        undoLog.release(second);
+        assertThat(undoLog.isRecording()).isFalse();
+    }
+}